@@ -0,0 +1,33 @@
+package pepse.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmark suite with the GC profiler attached, so every result reports allocation
+ * per operation next to its throughput. Accepts the usual JMH command line, for example
+ * "TerrainBenchmark -p windowWidth=1920" to run one benchmark class at one window width.
+ * <p>
+ * The benchmarks must be compiled with JMH's annotation processor, which generates their harness
+ * classes and the META-INF/BenchmarkList the runner discovers them from; without it nothing runs.
+ * The JMH jars are expected in ../libs/jmh. In IntelliJ, .idea/compiler.xml enables the processor
+ * for the bench module: build the project, then run this class. From a shell, with CP set to the
+ * project's classes, the DanoGameLab jar and the JMH jars:
+ * <pre>
+ * javac -cp "$CP" -processorpath "$CP" -d out/bench $(find bench -name '*.java')
+ * java -cp "out/bench:$CP" pepse.bench.BenchmarkMain
+ * </pre>
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,57 @@
+package pepse.bench;
+
+import danogl.GameObject;
+import danogl.collisions.GameObjectCollection;
+
+/**
+ * A game object collection that only counts what is added to and removed from it,
+ * so benchmarks measure world generation rather than the engine's bookkeeping.
+ */
+public class CountingGameObjectCollection extends GameObjectCollection {
+
+    private long added;
+    private long removed;
+
+    @Override
+    public void addGameObject(GameObject gameObject) {
+        added++;
+    }
+
+    @Override
+    public void addGameObject(GameObject gameObject, int layerId) {
+        added++;
+    }
+
+    @Override
+    public boolean removeGameObject(GameObject gameObject) {
+        removed++;
+        return true;
+    }
+
+    @Override
+    public boolean removeGameObject(GameObject gameObject, int layerId) {
+        removed++;
+        return true;
+    }
+
+    /**
+     * @return number of objects added so far
+     */
+    public long getAdded() {
+        return added;
+    }
+
+    /**
+     * @return number of objects removed so far
+     */
+    public long getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return number of objects that would currently be live
+     */
+    public long getLive() {
+        return added - removed;
+    }
+}
@@ -0,0 +1,81 @@
+package pepse.bench;
+
+import danogl.util.Vector2;
+import pepse.PepseGameManager;
+import pepse.util.ObjectPool;
+import pepse.world.Block;
+import pepse.world.LeafBlock;
+import pepse.world.Terrain;
+import pepse.world.chunks.Chunk;
+import pepse.world.trees.Tree;
+
+/**
+ * The generators of a world, wired like PepseGameManager wires them but adding to a counting
+ * collection. Shared by the benchmarks so they all measure the same setup.
+ */
+public class WorldState {
+
+    public static final float WINDOW_HEIGHT = 720;
+    public static final int TERRAIN_LAYER = PepseGameManager.TERRAIN_LAYER;
+    public static final int TREE_LAYER = PepseGameManager.TREE_LAYER;
+    public static final int LEAF_LAYER = PepseGameManager.LEAF_LAYER;
+    private static final int BLOCK_POOL_CAPACITY = 8192;
+
+    private final CountingGameObjectCollection gameObjects;
+    private final ObjectPool<Block> blockPool;
+    private final Terrain terrain;
+    private final Tree tree;
+    private final Vector2 windowDimensions;
+
+    /**
+     * @param windowWidth width of the simulated window
+     * @param seed        seed of the world
+     */
+    public WorldState(int windowWidth, int seed) {
+        windowDimensions = new Vector2(windowWidth, WINDOW_HEIGHT);
+        gameObjects = new CountingGameObjectCollection();
+        blockPool = new ObjectPool<>(() -> new Block(Vector2.ZERO, null), BLOCK_POOL_CAPACITY);
+        terrain = new Terrain(gameObjects, TERRAIN_LAYER, windowDimensions, seed, blockPool);
+        terrain.setMergedGeometry(true);
+        tree = new Tree(gameObjects, TREE_LAYER, LEAF_LAYER, seed, blockPool, null);
+        tree.setMergedGeometry(true);
+    }
+
+    /**
+     * Returns the objects of a chunk to their pools, as unloading the chunk would.
+     *
+     * @param chunk the chunk to recycle
+     */
+    public void recycle(Chunk chunk) {
+        for (Block block : chunk.getTerrainBlocks()) {
+            blockPool.release(block);
+        }
+        for (Block block : chunk.getTrunkBlocks()) {
+            blockPool.release(block);
+        }
+        for (LeafBlock leaf : chunk.getLeaves()) {
+            leaf.cancelLife();
+            tree.getLeafPool().release(leaf);
+        }
+    }
+
+    public CountingGameObjectCollection getGameObjects() {
+        return gameObjects;
+    }
+
+    public ObjectPool<Block> getBlockPool() {
+        return blockPool;
+    }
+
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    public Tree getTree() {
+        return tree;
+    }
+
+    public Vector2 getWindowDimensions() {
+        return windowDimensions;
+    }
+}
@@ -0,0 +1,52 @@
+package pepse.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking an approximate block color: the original method on its shared random, which sky and sun
+ * generation still call and every generated tile used to, and the seeded overload the palettes are built with.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColorSupplierBenchmark {
+
+    private static final Color BASE_COLOR = new Color(212, 123, 74);
+
+    @Param({"6", "42"})
+    public int seed;
+
+    private SplittableRandom random;
+    private ColorPalette palette;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(seed);
+        palette = ColorSupplier.palette(BASE_COLOR);
+    }
+
+    @Benchmark
+    public Color approximateColor() {
+        return ColorSupplier.approximateColor(BASE_COLOR);
+    }
+
+    @Benchmark
+    public Color approximateColorSeeded() {
+        return ColorSupplier.approximateColor(BASE_COLOR, random);
+    }
+
+    /**
+     * The palette lookup that replaced approximateColor on the generation path, for comparison.
+     */
+    @Benchmark
+    public Color paletteColor() {
+        return palette.getColor(palette.pickIndex(random));
+    }
+}
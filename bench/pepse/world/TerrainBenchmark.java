@@ -0,0 +1,58 @@
+package pepse.world;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pepse.bench.WorldState;
+import pepse.world.chunks.Chunk;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating a window of terrain, and querying ground heights across it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TerrainBenchmark {
+
+    @Param({"1280", "1920"})
+    public int windowWidth;
+
+    @Param({"6", "42"})
+    public int seed;
+
+    private WorldState world;
+    private Terrain terrain;
+
+    @Setup
+    public void setUp() {
+        world = new WorldState(windowWidth, seed);
+        terrain = world.getTerrain();
+    }
+
+    /**
+     * Describes and builds one window of terrain, then recycles its blocks.
+     */
+    @Benchmark
+    public void createInRange(Blackhole blackhole) {
+        Chunk chunk = new Chunk(0);
+        terrain.createInRange(0, windowWidth, chunk);
+        blackhole.consume(chunk.getObjectCount());
+        world.recycle(chunk);
+    }
+
+    /**
+     * Reads the ground height at every pixel of one window.
+     */
+    @Benchmark
+    public float groundHeightAt() {
+        float sum = 0;
+        for (int x = 0; x < windowWidth; x++) {
+            sum += terrain.groundHeightAt(x);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,79 @@
+package pepse.world.chunks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pepse.bench.WorldState;
+import pepse.world.Avatar;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One streaming step of the game: the camera moves by one frame of sprinting, then missing
+ * chunks are built and excess chunks removed, as buildMissingObjects and removeExcessObjects do.
+ * Chunks are described on the calling thread so every step does the same work.
+ * The leaf life scheduler and the falling leaves advance by a frame too, as in the game's animation phase,
+ * so the leaf events of removed chunks are recycled instead of piling up.
+ * The camera turns back after SCREENS_PER_LEG screens, so coordinates stay small.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingBenchmark {
+
+    // mirror PepseGameManager
+    private static final float BUILD_FACTOR = 0.8f;
+    private static final float OBJECT_REMOVAL_FACTOR = 2.8f;
+    private static final float PREFETCH_FACTOR = 2f;
+    private static final float BUILD_BUDGET_MILLIS = 2f;
+    private static final float FRAME_TIME = 1f / 60;
+    private static final float FRAME_STEP = Avatar.RUN_VELOCITY * FRAME_TIME;
+    private static final int SCREENS_PER_LEG = 20;
+
+    @Param({"1280", "1920"})
+    public int windowWidth;
+
+    @Param({"6", "42"})
+    public int seed;
+
+    private WorldState world;
+    private ChunkManager chunkManager;
+    private BuildScheduler scheduler;
+    private StreamingPolicy policy;
+    private float cameraX;
+    private float direction;
+
+    @Setup
+    public void setUp() {
+        world = new WorldState(windowWidth, seed);
+        scheduler = new BuildScheduler(BUILD_BUDGET_MILLIS);
+        chunkManager = new ChunkManager(world.getGameObjects(), world.getTerrain(), world.getTree(),
+                WorldState.TERRAIN_LAYER, WorldState.TREE_LAYER, WorldState.LEAF_LAYER,
+                world.getBlockPool(), world.getTree().getLeafPool(), Runnable::run, scheduler);
+        policy = new StreamingPolicy(windowWidth, BUILD_FACTOR, PREFETCH_FACTOR, OBJECT_REMOVAL_FACTOR);
+        chunkManager.updateVisibility(0, windowWidth);
+        chunkManager.loadRange(-windowWidth, 2 * windowWidth, -windowWidth, 2 * windowWidth);
+        cameraX = 0;
+        direction = 1;
+    }
+
+    @Benchmark
+    public void step(Blackhole blackhole) {
+        cameraX += direction * FRAME_STEP;
+        if (Math.abs(cameraX) > SCREENS_PER_LEG * windowWidth) {
+            direction = -direction;
+        }
+        float maxX = cameraX + windowWidth;
+        policy.update(cameraX, maxX, FRAME_TIME);
+        chunkManager.prefetchRange(policy.getPrefetchMin(), policy.getPrefetchMax());
+        chunkManager.loadRange(policy.getBuildMin(), policy.getBuildMax(), cameraX, maxX);
+        chunkManager.unloadOutside(policy.getKeepMin(), policy.getKeepMax());
+        scheduler.runFrame();
+        chunkManager.updateVisibility(cameraX, maxX);
+        world.getTree().getLeafLifeScheduler().advance(FRAME_TIME);
+        world.getTree().getFallingLeaves().update(FRAME_TIME);
+        blackhole.consume(world.getGameObjects().getLive());
+    }
+}
@@ -0,0 +1,66 @@
+package pepse.world.trees;
+
+import danogl.util.Vector2;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pepse.bench.WorldState;
+import pepse.util.PositionRandom;
+import pepse.world.TerrainDescriptor;
+import pepse.world.chunks.Chunk;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planting a window of trees, and laying out the leaves of a single tree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeBenchmark {
+
+    private static final Vector2 TREE_TOP = new Vector2(400, 200);
+
+    @Param({"1280", "1920"})
+    public int windowWidth;
+
+    @Param({"6", "42"})
+    public int seed;
+
+    private WorldState world;
+    private Tree tree;
+    private TerrainDescriptor strip;
+    private long column;
+
+    @Setup
+    public void setUp() {
+        world = new WorldState(windowWidth, seed);
+        tree = world.getTree();
+        strip = world.getTerrain().describe(0, windowWidth);
+    }
+
+    /**
+     * Describes and builds the trees of one window, then recycles their objects.
+     * The leaf life events the build scheduled are dropped with them, so they do not pile up across ops.
+     */
+    @Benchmark
+    public void createInRange(Blackhole blackhole) {
+        Chunk chunk = new Chunk(0);
+        tree.createInRange(0, windowWidth, strip, chunk);
+        blackhole.consume(chunk.getObjectCount());
+        world.recycle(chunk);
+        tree.getLeafLifeScheduler().clear();
+    }
+
+    /**
+     * Lays out the leaves around one tree top, a different tree every time.
+     */
+    @Benchmark
+    public Object getLeafCoordinates() {
+        SplittableRandom treeRandom = PositionRandom.at(seed, column++, 2);
+        return tree.getLeafCoordinates(TREE_TOP, treeRandom);
+    }
+}
@@ -0,0 +1,109 @@
+package pepse;
+
+import danogl.util.Vector2;
+import pepse.util.PhaseTimer;
+import pepse.world.Avatar;
+
+import java.awt.event.KeyEvent;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+
+/**
+ * Runs the game without a window, at a fixed timestep and as fast as possible, while a scripted
+ * avatar sprints right for a number of screens and back. Reports the frame rate, the time spent in
+ * each phase of update, the live objects per layer and the allocation rate of the game thread,
+ * so runs with the same arguments are comparable.
+ * <p>
+ * Usage: HeadlessRunner [screens] [round trips]
+ */
+public class HeadlessRunner {
+
+    private static final Vector2 WINDOW_DIMENSIONS = new Vector2(1280, 720);
+    private static final float TIMESTEP = 1f / 60;
+    private static final int DEFAULT_SCREENS = 10;
+    private static final int DEFAULT_ROUND_TRIPS = 1;
+    private static final int SETTLE_FRAMES = 60;
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Runs the benchmark script and prints its report.
+     *
+     * @param args optional number of screens to sprint, and number of round trips
+     */
+    public static void main(String[] args) {
+        int screens = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SCREENS;
+        int roundTrips = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUND_TRIPS;
+
+        ScriptedInput input = new ScriptedInput().hold(SETTLE_FRAMES);
+        int sprintFrames = (int) Math.ceil(screens * WINDOW_DIMENSIONS.x() / (Avatar.RUN_VELOCITY * TIMESTEP));
+        for (int trip = 0; trip < roundTrips; trip++) {
+            input.hold(sprintFrames, KeyEvent.VK_RIGHT).hold(sprintFrames, KeyEvent.VK_LEFT);
+        }
+
+        PepseGameManager game = new PepseGameManager("PEPSE headless");
+        game.initializeHeadless(WINDOW_DIMENSIONS, input);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocatedBytes(threads);
+        long start = System.nanoTime();
+        int frames = 0;
+        while (!input.isFinished()) {
+            game.update(TIMESTEP);
+            input.advance();
+            frames++;
+        }
+        double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        long allocated = allocatedBytes(threads) - allocatedBefore;
+
+        report(game, frames, seconds, allocated);
+    }
+
+    /**
+     * @param threads the thread management bean
+     * @return bytes allocated so far by the current thread, or -1 if the JVM does not tell
+     */
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Prints the results of a run.
+     *
+     * @param game      the simulated game
+     * @param frames    number of frames simulated
+     * @param seconds   wall-clock time of the run
+     * @param allocated bytes allocated by the game thread, negative if unknown
+     */
+    private static void report(PepseGameManager game, int frames, double seconds, long allocated) {
+        System.out.printf("frames        %d (%.1f s simulated) in %.2f s%n", frames, frames * TIMESTEP, seconds);
+        System.out.printf("frame rate    %.1f frames/s%n", frames / seconds);
+        System.out.printf("avatar x      %.0f%n", game.getAvatar().getTopLeftCorner().x());
+        if (allocated >= 0) {
+            System.out.printf("allocation    %.1f MB total, %.1f MB/s, %.1f KB/frame (game thread)%n",
+                    allocated / BYTES_PER_MEGABYTE, allocated / BYTES_PER_MEGABYTE / seconds,
+                    allocated / 1024.0 / frames);
+        }
+        System.out.println();
+        PhaseTimer phases = game.getPhaseTimer();
+        System.out.print(phases);
+        System.out.println();
+        for (Map.Entry<String, Integer> layer : game.countObjectsPerLayer().entrySet()) {
+            System.out.printf("%-12s %d objects%n", layer.getKey(), layer.getValue());
+        }
+        System.out.println();
+        System.out.println("loaded chunks " + game.getChunkManager().getLoadedChunkIndices().size()
+                + " (" + game.getChunkManager().getSleepingChunkCount() + " asleep)");
+        System.out.println("rendering     " + game.getRenderCuller());
+        System.out.println("quality       " + game.getQualityGovernor());
+        System.out.println("block pool    " + game.getBlockPool());
+        System.out.println("chunk cache   " + game.getChunkManager().getCache());
+        System.out.println("backlog       " + game.getBuildScheduler().getBacklog());
+        System.out.println("falling       " + game.getTree().getFallingLeaves().getCount() + " leaves");
+    }
+}
@@ -2,25 +2,41 @@ package pepse;
 
 import danogl.GameManager;
 import danogl.GameObject;
+import danogl.collisions.GameObjectCollection;
 import danogl.collisions.Layer;
-import danogl.components.CoordinateSpace;
 import danogl.gui.ImageReader;
 import danogl.gui.SoundReader;
 import danogl.gui.UserInputListener;
 import danogl.gui.WindowController;
 import danogl.gui.rendering.Camera;
-import danogl.gui.rendering.Renderable;
-import danogl.gui.rendering.TextRenderable;
 import danogl.util.Counter;
 import danogl.util.MutableVector2;
 import danogl.util.Vector2;
+import pepse.diagnostics.PerformanceOverlay;
+import pepse.diagnostics.SlowFrameEvent;
+import pepse.hud.Hud;
+import pepse.quality.QualityGovernor;
+import pepse.util.ObjectPool;
+import pepse.util.PhaseTimer;
 import pepse.world.daynight.Night;
 import pepse.world.daynight.Sun;
 import pepse.world.daynight.SunHalo;
 import pepse.world.*;
+import pepse.world.chunks.BuildScheduler;
+import pepse.world.chunks.ChunkBaker;
+import pepse.world.chunks.ChunkCache;
+import pepse.world.chunks.ChunkManager;
+import pepse.world.chunks.RenderCuller;
+import pepse.world.chunks.StreamingPolicy;
 import pepse.world.trees.Tree;
+import pepse.world.trees.Wind;
 
 import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
 
 public class PepseGameManager extends GameManager {
 
@@ -28,29 +44,57 @@ public class PepseGameManager extends GameManager {
     private static final int SUN_LAYER = Layer.BACKGROUND + 1;
     private static final Color HALO_BG_COLOR = new Color(255, 255, 0, 20);
     private static final int HALO_LAYER = Layer.BACKGROUND + 10;
-    private static final int TREE_LAYER = Layer.STATIC_OBJECTS;
-    private static final int TERRAIN_LAYER = Layer.STATIC_OBJECTS;
-    private static final int LEAF_LAYER = Layer.STATIC_OBJECTS + 1;
+    public static final int TREE_LAYER = Layer.STATIC_OBJECTS;
+    public static final int TERRAIN_LAYER = Layer.STATIC_OBJECTS - 1;
+    public static final int LEAF_LAYER = Layer.STATIC_OBJECTS + 1;
     private static final int CYCLE_LENGTH = 50;
     private static final int NIGHT_LAYER = Layer.FOREGROUND;
-    private static final float OBJECT_REMOVAL_RANGE = 2f;
     private static final float CAMERA_OFFSET = 0.3f;
     private static final float BUILD_FACTOR = 0.8f;
     private static final float OBJECT_REMOVAL_FACTOR = 2.8f;
+    private static final float PREFETCH_FACTOR = 2f;
     private static final int SEED = 6;
+    private static final boolean MERGED_GEOMETRY = true;
+    private static final boolean BAKED_TERRAIN = true;
+    private static final long BAKE_CACHE_BUDGET_BYTES = 256L * 1024;
+    private static final long CHUNK_CACHE_BUDGET_BYTES = 4L * 1024 * 1024;
+    private static final boolean AUTUMN_LEAVES = false;
+    private static final float AUTUMN_PERIOD_SCALE = 0.1f;
+    private static final int TARGET_FRAMERATE = 60;
+    private static final float CULL_MARGIN = (Tree.LEAF_BLOCK_RANGE + 1) * Block.SIZE;
+    private static final int PHASE_UPDATE = 0;
+    private static final int PHASE_BUILD = 1;
+    private static final int PHASE_REMOVE = 2;
+    private static final int PHASE_SCHEDULER = 3;
+    private static final int PHASE_ANIMATION = 4;
+    private static final Vector2 OVERLAY_OFFSET = new Vector2(0, 40);
+    private static final String[] PHASE_NAMES = {"update", "build", "remove", "scheduler", "animation"};
+    private static final int BLOCK_POOL_CAPACITY = 8192;
+    private static final float BUILD_BUDGET_MILLIS = 2f;
 
 
     private Tree tree;
     private Float updateFactor;
     private MutableVector2 windowBorder;
     private Vector2 windowDimensions;
-    private MutableVector2 currentBuiltRange;
     private Terrain terrain;
+    private ChunkManager chunkManager;
+    private ObjectPool<Block> blockPool;
+    private BuildScheduler buildScheduler;
+    private Wind wind;
+    private HeightField heightField;
+    private ChunkBaker chunkBaker;
+    private Avatar avatar;
+    private PhaseTimer phaseTimer;
+    private Hud hud;
+    private StreamingPolicy streamingPolicy;
+    private RenderCuller renderCuller;
+    private QualityGovernor qualityGovernor;
+    private GameObjectCollection headlessObjects;
 
 
     PepseGameManager(String title) {
         super(title);
-        currentBuiltRange = new MutableVector2(Vector2.ZERO);
     }
 
 
@@ -66,19 +110,60 @@ public class PepseGameManager extends GameManager {
     public void initializeGame(ImageReader imageReader, SoundReader soundReader,
                                UserInputListener inputListener, WindowController windowController) {
         super.initializeGame(imageReader, soundReader, inputListener, windowController);
-        windowDimensions = windowController.getWindowDimensions();
-        updateFactor = windowDimensions.x();
+        windowController.setTargetFramerate(TARGET_FRAMERATE);
+        initializeWorld(windowController.getWindowDimensions(), inputListener::isKeyPressed, imageReader);
+    }
+
+    /**
+     * Initializes the game without a window, for simulations driven by calling update directly.
+     * Nothing is rendered and the avatar is drawn with no image.
+     * The engine's initializer is not called, since it expects a window controller. Instead the game
+     * keeps a game object collection of its own, and update advances it and the camera itself, so the
+     * headless path only relies on the engine's GameObjectCollection (its no-argument constructor,
+     * update and handleCollisions) and on setCamera/camera holding the camera.
+     *
+     * @param windowDimensions dimensions of the simulated window
+     * @param keyPressed       tells whether a key (by KeyEvent key code) is held down
+     */
+    public void initializeHeadless(Vector2 windowDimensions, IntPredicate keyPressed) {
+        headlessObjects = new GameObjectCollection();
+        initializeWorld(windowDimensions, keyPressed, null);
+    }
 
-        currentBuiltRange = new MutableVector2((int) (-updateFactor), (int) (windowDimensions.x() + updateFactor));
-        windowController.setTargetFramerate(60);
+    /**
+     * @return the game objects of the window, or of the headless simulation when running without one
+     */
+    @Override
+    public GameObjectCollection gameObjects() {
+        return headlessObjects != null ? headlessObjects : super.gameObjects();
+    }
 
+    /**
+     * Creates the background, the world around the origin and the avatar.
+     *
+     * @param windowDimensions dimensions of the window
+     * @param keyPressed       tells whether a key is held down
+     * @param imageReader      image reader for the avatar, or null to draw it with no image
+     */
+    private void initializeWorld(Vector2 windowDimensions, IntPredicate keyPressed, ImageReader imageReader) {
+        this.windowDimensions = windowDimensions;
+        updateFactor = windowDimensions.x();
+        phaseTimer = new PhaseTimer(PHASE_NAMES);
+
+        hud = new Hud(gameObjects(), Layer.UI);
         createBackgroundObjects();
-        createAvatar(inputListener, imageReader);
-        windowBorder = new MutableVector2(camera().getTopLeftCorner().x(),
-                camera().getTopLeftCorner().x() + this.windowDimensions.x());
+        windowBorder = new MutableVector2(0, windowDimensions.x());
         createTreesAndTerrains();
+        createAvatar(keyPressed, imageReader);
+        createPerformanceOverlay(keyPressed);
+        windowBorder.setXY(camera().getTopLeftCorner().x(),
+                camera().getTopLeftCorner().x() + this.windowDimensions.x());
 
-        gameObjects().layers().shouldLayersCollide(LEAF_LAYER, TERRAIN_LAYER, true);
+        // Ground contact is resolved by the height field, terrain stays out of the collision checks.
+        // Leaves never move, falling ones are particles landing through the height field as well
+        gameObjects().layers().shouldLayersCollide(LEAF_LAYER, TREE_LAYER, false);
+        gameObjects().layers().shouldLayersCollide(LEAF_LAYER, TERRAIN_LAYER, false);
+        gameObjects().layers().shouldLayersCollide(Layer.DEFAULT, TERRAIN_LAYER, false);
         gameObjects().layers().shouldLayersCollide(Layer.DEFAULT, LEAF_LAYER, false);
     }
 
@@ -96,32 +181,49 @@ public class PepseGameManager extends GameManager {
 
     /**
      * Initializes the static background objects in the game world, including the terrain and trees.
-     * The range for these objects extends beyond the current window dimensions by a factor of 3 screen sizes.
+     * The chunks covering the window and a screen on each side of it are loaded right away.
      **/
     private void createTreesAndTerrains() {
         // Create terrain and tree objects
-        terrain = new Terrain(gameObjects(), TERRAIN_LAYER, windowDimensions, SEED);
-        tree = new Tree(gameObjects(), terrain, TREE_LAYER, windowBorder, LEAF_LAYER, SEED);
-
-        // Create terrain and trees within a range that extends beyond the current window dimensions
-        int minRange = (int) (-updateFactor);
-        int maxRange = (int) (windowDimensions.x() + updateFactor);
-        terrain.createInRange(minRange, maxRange);
-        tree.createInRange(minRange, maxRange);
-
-        // Set the current built range to the extended range
-        currentBuiltRange.setXY(minRange, maxRange);
+        buildScheduler = new BuildScheduler(BUILD_BUDGET_MILLIS);
+        blockPool = new ObjectPool<>(() -> new Block(Vector2.ZERO, null), BLOCK_POOL_CAPACITY);
+        terrain = new Terrain(gameObjects(), TERRAIN_LAYER, windowDimensions, SEED, blockPool);
+        heightField = new HeightField(terrain);
+        tree = new Tree(gameObjects(), TREE_LAYER, LEAF_LAYER, SEED, blockPool, heightField);
+        wind = new Wind(windowBorder);
+        streamingPolicy = new StreamingPolicy(updateFactor, BUILD_FACTOR, PREFETCH_FACTOR, OBJECT_REMOVAL_FACTOR);
+        terrain.setMergedGeometry(MERGED_GEOMETRY);
+        tree.setMergedGeometry(MERGED_GEOMETRY);
+        if (AUTUMN_LEAVES) {
+            tree.getLeafLifeScheduler().setPeriodScale(AUTUMN_PERIOD_SCALE);
+        }
+        if (BAKED_TERRAIN) {
+            chunkBaker = new ChunkBaker(BAKE_CACHE_BUDGET_BYTES);
+            terrain.setBaker(chunkBaker);
+        }
+        chunkManager = new ChunkManager(gameObjects(), terrain, tree, TERRAIN_LAYER, TREE_LAYER, LEAF_LAYER,
+                blockPool, tree.getLeafPool(), ForkJoinPool.commonPool(), buildScheduler);
+        chunkManager.setCache(new ChunkCache(CHUNK_CACHE_BUDGET_BYTES, terrain.getGroundPalette()));
+        renderCuller = new RenderCuller(CULL_MARGIN);
+        qualityGovernor = new QualityGovernor(1f / TARGET_FRAMERATE, tree, wind, streamingPolicy);
+
+        // Load the chunks of a range that extends beyond the current window dimensions
+        chunkManager.updateVisibility(windowBorder.x(), windowBorder.y());
+        float minRange = -updateFactor;
+        float maxRange = windowDimensions.x() + updateFactor;
+        chunkManager.loadRange(minRange, maxRange, minRange, maxRange);
     }
 
 
     /**
      * Initializes the avatar for the game, sets the starting coordinates and conditions
      *
-     * @param inputListener user input listener for avatar
-     * @param imageReader   image reader for avatar
+     * @param keyPressed  tells whether a key is held down
+     * @param imageReader image reader for avatar, or null to draw it with no image
      */
-    private void createAvatar(UserInputListener inputListener, ImageReader imageReader) {
-        Avatar avatar = Avatar.create(gameObjects(), Layer.DEFAULT, Vector2.ZERO, inputListener, imageReader);
+    private void createAvatar(IntPredicate keyPressed, ImageReader imageReader) {
+        avatar = Avatar.create(gameObjects(), Layer.DEFAULT, Vector2.ZERO, keyPressed, imageReader,
+                heightField);
         avatar.setCenter(windowDimensions.mult(0.5f).multY(0.8f));
         setCamera(new Camera(avatar,
                 Vector2.UP.mult(windowDimensions.y() * CAMERA_OFFSET),
@@ -132,94 +234,211 @@ public class PepseGameManager extends GameManager {
 
 
     /**
-     * Removes the given game object from the appropriate layer
+     * Creates the diagnostics overlay, hidden until its toggle key is pressed.
      *
-     * @param object: game object to remove
+     * @param keyPressed tells whether a key is held down
      */
-    private void removeGameObject(GameObject object) {
-        int layer;
-        if (object instanceof LeafBlock) {
-            layer = LEAF_LAYER;
-        } else {
-            layer = TERRAIN_LAYER;
-        }
-        gameObjects().removeGameObject(object, layer);
+    private void createPerformanceOverlay(IntPredicate keyPressed) {
+        List<ObjectPool<?>> pools = List.of(blockPool, tree.getLeafPool());
+        hud.add(new PerformanceOverlay(windowDimensions.mult(0.01f).add(OVERLAY_OFFSET),
+                keyPressed, phaseTimer, this::countObjectsPerLayer, pools));
     }
 
     /**
-     * Removes game objects that are more than two screens away from the camera, for performance maintenance
+     * Unloads the chunks outside the range the streaming policy keeps, for performance maintenance.
+     * Only the objects owned by those chunks are touched, and they are removed by the build scheduler
+     * within its frame budget.
      */
     private void removeExcessObjects() {
-        // Upper bound (right)
-        if (currentBuiltRange.y() > windowBorder.y() + updateFactor * OBJECT_REMOVAL_FACTOR) {
-            gameObjects().forEach(object -> {
-                if (object instanceof Block || object instanceof LeafBlock) {
-                    if (object.getTopLeftCorner().x() > currentBuiltRange.y()
-                            + updateFactor * 2 - object.getDimensions().x()) {
-                        removeGameObject(object);
-                    }
-                }
-            });
-            currentBuiltRange.setY(currentBuiltRange.y() - updateFactor * OBJECT_REMOVAL_RANGE);
-        }
-        // Lower bound (right)
-        if (currentBuiltRange.x() < windowBorder.x() - updateFactor * OBJECT_REMOVAL_FACTOR) {
-            gameObjects().forEach(object -> {
-                if (object instanceof Block || object instanceof LeafBlock) {
-                    if (object.getTopLeftCorner().x() < currentBuiltRange.x()
-                            + updateFactor * OBJECT_REMOVAL_RANGE) {
-                        removeGameObject(object);
-                    }
-                }
-            });
-            currentBuiltRange.setX(currentBuiltRange.x() + updateFactor * 3f);
-        }
+        chunkManager.unloadOutside(streamingPolicy.getKeepMin(), streamingPolicy.getKeepMax());
     }
 
     /**
-     * Builds a new screen worth of world objects when the camera is close to the edge of the current screen
+     * Starts describing the chunks in the streaming policy's prefetch range on worker threads,
+     * and loads the missing chunks in its build range whose descriptors are ready.
+     * Only chunks overlapping the window itself are waited for.
      */
     private void buildMissingObjects() {
-        if (currentBuiltRange.x() > windowBorder.x() - updateFactor * BUILD_FACTOR) {
-            terrain.createInRange((int) (currentBuiltRange.x() - updateFactor), (int) currentBuiltRange.x());
-            tree.createInRange((int) (currentBuiltRange.x() - updateFactor), (int) currentBuiltRange.x());
-            currentBuiltRange.setX(currentBuiltRange.x() - updateFactor);
-        }
-        if (currentBuiltRange.y() < windowBorder.y() + updateFactor * BUILD_FACTOR) {
-            terrain.createInRange((int) currentBuiltRange.y(), (int) (currentBuiltRange.y() + updateFactor));
-            tree.createInRange((int) currentBuiltRange.y(), (int) (currentBuiltRange.y() + updateFactor));
-            currentBuiltRange.setY(currentBuiltRange.y() + updateFactor);
-        }
+        chunkManager.prefetchRange(streamingPolicy.getPrefetchMin(), streamingPolicy.getPrefetchMax());
+        chunkManager.loadRange(streamingPolicy.getBuildMin(), streamingPolicy.getBuildMax(),
+                windowBorder.x(), windowBorder.y());
     }
 
 
-    // Updates the game world, including building missing objects and removing excess ones
+    // Updates the game world, including building missing objects and removing excess ones.
+    // Frames slower than the SlowFrameEvent threshold are recorded for the flight recorder.
     @Override
     public void update(float deltaTime) {
-        super.update(deltaTime);
+        SlowFrameEvent slowFrame = new SlowFrameEvent();
+        slowFrame.begin();
+        long time = System.nanoTime();
+        if (headlessObjects != null) {
+            headlessObjects.update(deltaTime);
+            headlessObjects.handleCollisions();
+            camera().update(deltaTime);
+        } else {
+            super.update(deltaTime);
+        }
+        time = phaseTimer.record(PHASE_UPDATE, time);
 
         windowBorder.setXY(camera().getTopLeftCorner().x(), camera().getTopLeftCorner().x()
                 + this.windowDimensions.x());
+        streamingPolicy.update(windowBorder.x(), windowBorder.y(), deltaTime);
 
         buildMissingObjects();
+        time = phaseTimer.record(PHASE_BUILD, time);
         removeExcessObjects();
+        time = phaseTimer.record(PHASE_REMOVE, time);
+        buildScheduler.runFrame();
+        time = phaseTimer.record(PHASE_SCHEDULER, time);
+        chunkManager.updateVisibility(windowBorder.x(), windowBorder.y());
+        renderCuller.update(chunkManager.getLoadedChunks(), windowBorder.x(), windowBorder.y());
+        wind.update(deltaTime, chunkManager.getLoadedChunks());
+        tree.getLeafLifeScheduler().advance(deltaTime);
+        qualityGovernor.update(deltaTime);
+        phaseTimer.record(PHASE_ANIMATION, time);
+
+        slowFrame.end();
+        if (slowFrame.shouldCommit()) {
+            slowFrame.deltaTime = (long) (deltaTime * 1000);
+            slowFrame.updateTime = phaseTimer.getLastNanos(PHASE_UPDATE);
+            slowFrame.buildTime = phaseTimer.getLastNanos(PHASE_BUILD);
+            slowFrame.removeTime = phaseTimer.getLastNanos(PHASE_REMOVE);
+            slowFrame.schedulerTime = phaseTimer.getLastNanos(PHASE_SCHEDULER);
+            slowFrame.backlog = buildScheduler.getBacklog();
+            slowFrame.loadedChunks = chunkManager.getLoadedChunks().size();
+            slowFrame.commit();
+        }
+    }
+
+    /**
+     * Returns the time spent in each phase of update: updating the game objects, building missing
+     * chunks, removing excess chunks, running the build scheduler and animating the loaded chunks.
+     *
+     * @return the per-phase timings of update
+     */
+    public PhaseTimer getPhaseTimer() {
+        return phaseTimer;
     }
 
+    /**
+     * Counts the live game objects in each layer of the world. The falling leaves are one object drawing
+     * many particles, so they are reported as a particle count of their own instead of among the leaves.
+     *
+     * @return the number of objects, by layer name
+     */
+    public Map<String, Integer> countObjectsPerLayer() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("background", countObjects(Layer.BACKGROUND, HALO_LAYER));
+        counts.put("terrain", countObjects(TERRAIN_LAYER, TERRAIN_LAYER));
+        counts.put("trunks", countObjects(TREE_LAYER, TREE_LAYER));
+        counts.put("leaves", countObjects(LEAF_LAYER, LEAF_LAYER));
+        counts.put("particles", tree.getFallingLeaves().getCount());
+        counts.put("avatar", countObjects(Layer.DEFAULT, Layer.DEFAULT));
+        counts.put("foreground", countObjects(NIGHT_LAYER, NIGHT_LAYER));
+        return counts;
+    }
+
+    /**
+     * @param firstLayer the first layer to count
+     * @param lastLayer  the last layer to count
+     * @return the number of objects in the layers between firstLayer and lastLayer, inclusive,
+     * leaving out the single object drawing the falling leaf particles
+     */
+    private int countObjects(int firstLayer, int lastLayer) {
+        int count = 0;
+        for (int layer = firstLayer; layer <= lastLayer; layer++) {
+            for (GameObject object : gameObjects().objectsInLayer(layer)) {
+                if (object != tree.getFallingLeaves()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the avatar
+     */
+    public Avatar getAvatar() {
+        return avatar;
+    }
+
+    /**
+     * @return the object pool of the terrain and trunk blocks
+     */
+    public ObjectPool<Block> getBlockPool() {
+        return blockPool;
+    }
+
+    /**
+     * @return the policy deciding which strip of the world is streamed in around the window
+     */
+    public StreamingPolicy getStreamingPolicy() {
+        return streamingPolicy;
+    }
+
+    /**
+     * @return the trees of the world, with their leaf scheduler and falling leaves
+     */
+    public Tree getTree() {
+        return tree;
+    }
+
+    /**
+     * @return the chunk manager of the world
+     */
+    public ChunkManager getChunkManager() {
+        return chunkManager;
+    }
+
+
+    /**
+     * Returns the scheduler that builds and clears chunks, exposing its per-frame budget,
+     * backlog and time spent.
+     *
+     * @return the build scheduler
+     */
+    public BuildScheduler getBuildScheduler() {
+        return buildScheduler;
+    }
+
+    /**
+     * Returns the governor that lowers the quality of the world when frames run late, exposing its tier.
+     *
+     * @return the quality governor
+     */
+    public QualityGovernor getQualityGovernor() {
+        return qualityGovernor;
+    }
+
+    /**
+     * Returns the culler that skips drawing the chunks out of view, exposing its drawn and culled counts.
+     *
+     * @return the render culler
+     */
+    public RenderCuller getRenderCuller() {
+        return renderCuller;
+    }
+
+    /**
+     * Returns the baker of the chunk terrain, exposing its bake and cache hit counts.
+     *
+     * @return the chunk baker, or null if terrain is not baked
+     */
+    public ChunkBaker getChunkBaker() {
+        return chunkBaker;
+    }
 
     /**
-     * Builds the static energy counter for the avatar
+     * Adds the readout of the avatar's energy to the HUD. It is only redrawn when the energy changes.
      *
      * @param windowDimensions: dimensions of the game window
      * @param energyCounter:    counter for the avatar's energy
      */
     private void createAvatarEnergyCounter(Vector2 windowDimensions, Counter energyCounter) {
-        Renderable img = new TextRenderable("100");
-        GameObject counter = new GameObject(windowDimensions.mult(0.01f), new Vector2(100, 30), img);
-        counter.addComponent(deltaTime -> {
-            counter.renderer().setRenderable(new TextRenderable("Energy: " + energyCounter.value()));
-        });
-        counter.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
-        gameObjects().addGameObject(counter, Layer.BACKGROUND);
+        hud.addCounter(windowDimensions.mult(0.01f), new Vector2(100, 30), "Energy: ", energyCounter,
+                0, Avatar.MAX_HEALTH);
     }
 
 
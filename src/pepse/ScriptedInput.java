@@ -0,0 +1,87 @@
+package pepse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Replays a fixed script of held keys, one step per frame, in place of a user.
+ * The script is a sequence of steps, each holding a set of keys down for a number of frames.
+ */
+public class ScriptedInput implements IntPredicate {
+
+    private final List<int[]> stepKeys;
+    private final List<Integer> stepFrames;
+    private int step;
+    private int frameInStep;
+
+    /**
+     * Creates an empty script.
+     */
+    public ScriptedInput() {
+        stepKeys = new ArrayList<>();
+        stepFrames = new ArrayList<>();
+    }
+
+    /**
+     * Appends a step to the script.
+     *
+     * @param frames number of frames to hold the keys for
+     * @param keys   KeyEvent key codes to hold, none to idle
+     * @return this script
+     */
+    public ScriptedInput hold(int frames, int... keys) {
+        stepKeys.add(keys);
+        stepFrames.add(frames);
+        return this;
+    }
+
+    /**
+     * Moves the script forward by one frame.
+     */
+    public void advance() {
+        if (isFinished()) {
+            return;
+        }
+        frameInStep++;
+        if (frameInStep >= stepFrames.get(step)) {
+            step++;
+            frameInStep = 0;
+        }
+    }
+
+    /**
+     * @return true once every step of the script was played
+     */
+    public boolean isFinished() {
+        return step >= stepFrames.size();
+    }
+
+    /**
+     * @return total number of frames in the script
+     */
+    public int getTotalFrames() {
+        int total = 0;
+        for (int frames : stepFrames) {
+            total += frames;
+        }
+        return total;
+    }
+
+    /**
+     * @param keyCode a KeyEvent key code
+     * @return true if the current step holds the key down
+     */
+    @Override
+    public boolean test(int keyCode) {
+        if (isFinished()) {
+            return false;
+        }
+        for (int key : stepKeys.get(step)) {
+            if (key == keyCode) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
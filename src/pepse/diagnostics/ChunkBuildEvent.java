@@ -0,0 +1,41 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event spanning a chunk from the moment it is queued for building until its last
+ * object is created. The event duration is the latency seen by the player; workTime is the time
+ * actually spent building it, spread over the frames in between.
+ */
+@Name("pepse.ChunkBuild")
+@Label("Chunk Build")
+@Category({"PEPSE", "Streaming"})
+@Description("A chunk was built, from being queued to its last object")
+public class ChunkBuildEvent extends Event {
+
+    @Label("Chunk Index")
+    public int chunkIndex;
+
+    @Label("Min X")
+    public int minX;
+
+    @Label("Max X")
+    @Description("Right edge of the chunk, exclusive")
+    public int maxX;
+
+    @Label("Objects Created")
+    public int objectsCreated;
+
+    @Label("Required")
+    @Description("Whether the chunk was on screen and built at once instead of within the frame budget")
+    public boolean required;
+
+    @Label("Work Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long workTime;
+}
@@ -0,0 +1,29 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event spanning a chunk from the moment it is unloaded until its last object
+ * is removed and recycled.
+ */
+@Name("pepse.ChunkRemoval")
+@Label("Chunk Removal")
+@Category({"PEPSE", "Streaming"})
+@Description("A chunk was unloaded, from being queued to its last object removed")
+public class ChunkRemovalEvent extends Event {
+
+    @Label("Chunk Index")
+    public int chunkIndex;
+
+    @Label("Objects Removed")
+    public int objectsRemoved;
+
+    @Label("Work Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long workTime;
+}
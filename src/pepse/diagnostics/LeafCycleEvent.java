@@ -0,0 +1,24 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning one life cycle of a leaf, from the moment it starts falling
+ * until it grows back at its home position.
+ */
+@Name("pepse.LeafCycle")
+@Label("Leaf Cycle")
+@Category({"PEPSE", "Animation"})
+@Description("A leaf fell and grew back")
+public class LeafCycleEvent extends Event {
+
+    @Label("Home X")
+    public float homeX;
+
+    @Label("Home Y")
+    public float homeY;
+}
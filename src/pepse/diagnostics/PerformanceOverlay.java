@@ -0,0 +1,285 @@
+package pepse.diagnostics;
+
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.hud.HudWidget;
+import pepse.util.ObjectPool;
+import pepse.util.PhaseTimer;
+import pepse.world.BakedRenderable;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * A diagnostics panel drawn in camera coordinates, toggled with F3.
+ * Shows a histogram of recent frame times, the time spent in each phase of the game update,
+ * the live objects per layer, how many objects are created and removed per second, and heap usage.
+ * The panel is a HUD widget that is only dirty a few times per second: it is drawn into a single image
+ * and shown through one renderable, so between refreshes it costs one image draw per frame,
+ * and nothing while hidden.
+ */
+public class PerformanceOverlay extends HudWidget {
+
+    private static final int TOGGLE_KEY = KeyEvent.VK_F3;
+    private static final float REFRESH_PERIOD = 0.25f;
+    private static final int FRAME_HISTORY = 120;
+    private static final float[] BUCKET_LIMITS = {8, 17, 20, 33, 50};
+    private static final String[] BUCKET_LABELS = {"<8", "8-17", "17-20", "20-33", "33-50", ">50"};
+    private static final int WIDTH = 360;
+    private static final int HEIGHT = 250;
+    private static final int MARGIN = 8;
+    private static final int LINE_HEIGHT = 15;
+    private static final int BAR_OFFSET = 50;
+    private static final int BAR_WIDTH = 200;
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND_COLOR = new Color(0, 0, 0, 170);
+    private static final Color TEXT_COLOR = Color.WHITE;
+    private static final Color BAR_COLOR = new Color(90, 200, 120);
+    private static final Color SLOW_BAR_COLOR = new Color(230, 90, 70);
+    private static final int FIRST_SLOW_BUCKET = 3;
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final IntPredicate keyPressed;
+    private final PhaseTimer phaseTimer;
+    private final Supplier<Map<String, Integer>> layerCounts;
+    private final List<ObjectPool<?>> pools;
+    private final BufferedImage image;
+    private final BakedRenderable renderable;
+    private final float[] frameMillis;
+    private final double[] lastPhaseTotals;
+    private final int[] lastPhaseCounts;
+    private int nextFrame;
+    private int recordedFrames;
+    private float sinceRefresh;
+    private boolean shown;
+    private boolean toggleKeyDown;
+    private long lastAcquisitions;
+    private long lastReleases;
+
+    /**
+     * Creates a hidden overlay.
+     *
+     * @param topLeftCorner position of the panel on screen
+     * @param keyPressed    tells whether a key is held down, for the toggle key
+     * @param phaseTimer    the per-phase timings of the game update
+     * @param layerCounts   counts the live objects per layer
+     * @param pools         the pools the world's objects are created from and returned to
+     */
+    public PerformanceOverlay(Vector2 topLeftCorner, IntPredicate keyPressed, PhaseTimer phaseTimer,
+                              Supplier<Map<String, Integer>> layerCounts, List<ObjectPool<?>> pools) {
+        super(topLeftCorner, new Vector2(WIDTH, HEIGHT));
+        this.keyPressed = keyPressed;
+        this.phaseTimer = phaseTimer;
+        this.layerCounts = layerCounts;
+        this.pools = pools;
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        renderable = new BakedRenderable(image);
+        frameMillis = new float[FRAME_HISTORY];
+        lastPhaseTotals = new double[phaseTimer.getPhaseCount()];
+        lastPhaseCounts = new int[phaseTimer.getPhaseCount()];
+    }
+
+    @Override
+    public void update(float deltaTime) {
+        boolean keyDown = keyPressed.test(TOGGLE_KEY);
+        if (keyDown && !toggleKeyDown) {
+            setShown(!shown);
+        }
+        toggleKeyDown = keyDown;
+
+        frameMillis[nextFrame] = deltaTime * 1000;
+        nextFrame = (nextFrame + 1) % FRAME_HISTORY;
+        recordedFrames = Math.min(recordedFrames + 1, FRAME_HISTORY);
+        if (shown) {
+            sinceRefresh += deltaTime;
+        }
+        super.update(deltaTime);
+    }
+
+    @Override
+    protected boolean isDirty() {
+        return shown && sinceRefresh >= REFRESH_PERIOD;
+    }
+
+    @Override
+    protected Renderable redraw() {
+        refresh(sinceRefresh);
+        sinceRefresh = 0;
+        return renderable;
+    }
+
+    /**
+     * Shows or hides the overlay. Counters are sampled when it is shown, so the first
+     * refresh only reports what happened while it was visible.
+     *
+     * @param shown true to show the overlay
+     */
+    public void setShown(boolean shown) {
+        this.shown = shown;
+        renderer().setRenderable(shown ? renderable : null);
+        if (shown) {
+            sinceRefresh = 0;
+            sampleCounters();
+            Graphics2D g = image.createGraphics();
+            clear(g);
+            g.dispose();
+        }
+    }
+
+    /**
+     * @return true if the overlay is shown
+     */
+    public boolean isShown() {
+        return shown;
+    }
+
+    /**
+     * Remembers the current phase totals and pool counters, as the base of the next refresh.
+     */
+    private void sampleCounters() {
+        for (int phase = 0; phase < lastPhaseTotals.length; phase++) {
+            lastPhaseTotals[phase] = phaseTimer.getTotalMillis(phase);
+            lastPhaseCounts[phase] = phaseTimer.getCount(phase);
+        }
+        lastAcquisitions = 0;
+        lastReleases = 0;
+        for (ObjectPool<?> pool : pools) {
+            lastAcquisitions += pool.getAcquisitions();
+            lastReleases += pool.getReleases();
+        }
+    }
+
+    /**
+     * Fills the panel with its background.
+     *
+     * @param g graphics of the panel image
+     */
+    private void clear(Graphics2D g) {
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(BACKGROUND_COLOR);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setComposite(AlphaComposite.SrcOver);
+    }
+
+    /**
+     * Redraws the panel image.
+     *
+     * @param elapsed seconds since the previous refresh
+     */
+    private void refresh(float elapsed) {
+        Graphics2D g = image.createGraphics();
+        clear(g);
+        g.setFont(FONT);
+        int y = MARGIN + LINE_HEIGHT;
+        y = drawFrameTimes(g, y);
+        y = drawPhases(g, y);
+        y = drawObjects(g, y, elapsed);
+        Runtime runtime = Runtime.getRuntime();
+        g.setColor(TEXT_COLOR);
+        g.drawString(String.format("heap %.0f / %.0f MB",
+                (runtime.totalMemory() - runtime.freeMemory()) / BYTES_PER_MEGABYTE,
+                runtime.maxMemory() / BYTES_PER_MEGABYTE), MARGIN, y);
+        g.dispose();
+        sampleCounters();
+    }
+
+    /**
+     * Draws the frame rate and the histogram of the recent frame times.
+     *
+     * @param g graphics of the panel image
+     * @param y baseline of the first line
+     * @return baseline of the next line
+     */
+    private int drawFrameTimes(Graphics2D g, int y) {
+        int[] buckets = new int[BUCKET_LABELS.length];
+        float total = 0;
+        float max = 0;
+        for (int frame = 0; frame < recordedFrames; frame++) {
+            float millis = frameMillis[frame];
+            total += millis;
+            max = Math.max(max, millis);
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS.length && millis >= BUCKET_LIMITS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+        float average = recordedFrames == 0 ? 0 : total / recordedFrames;
+        g.setColor(TEXT_COLOR);
+        g.drawString(String.format("%.1f fps  frame %.1f ms  max %.1f ms",
+                average == 0 ? 0 : 1000 / average, average, max), MARGIN, y);
+        y += LINE_HEIGHT;
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            g.setColor(TEXT_COLOR);
+            g.drawString(BUCKET_LABELS[bucket], MARGIN, y);
+            g.setColor(bucket >= FIRST_SLOW_BUCKET ? SLOW_BAR_COLOR : BAR_COLOR);
+            int width = recordedFrames == 0 ? 0 : BAR_WIDTH * buckets[bucket] / recordedFrames;
+            g.fillRect(MARGIN + BAR_OFFSET, y - LINE_HEIGHT + 4, width, LINE_HEIGHT - 4);
+            y += LINE_HEIGHT;
+        }
+        return y;
+    }
+
+    /**
+     * Draws the mean time spent in each phase since the previous refresh.
+     *
+     * @param g graphics of the panel image
+     * @param y baseline of the first line
+     * @return baseline of the next line
+     */
+    private int drawPhases(Graphics2D g, int y) {
+        g.setColor(TEXT_COLOR);
+        StringBuilder line = new StringBuilder();
+        for (int phase = 0; phase < lastPhaseTotals.length; phase++) {
+            int count = phaseTimer.getCount(phase) - lastPhaseCounts[phase];
+            double millis = count == 0 ? 0 : (phaseTimer.getTotalMillis(phase) - lastPhaseTotals[phase]) / count;
+            line.append(String.format("%s %.2f  ", phaseTimer.getName(phase), millis));
+            if (phase % 3 == 2 || phase == lastPhaseTotals.length - 1) {
+                g.drawString(line.toString(), MARGIN, y);
+                line.setLength(0);
+                y += LINE_HEIGHT;
+            }
+        }
+        return y;
+    }
+
+    /**
+     * Draws the live objects per layer, and the rate objects are created and removed at.
+     *
+     * @param g       graphics of the panel image
+     * @param y       baseline of the first line
+     * @param elapsed seconds since the previous refresh
+     * @return baseline of the next line
+     */
+    private int drawObjects(Graphics2D g, int y, float elapsed) {
+        g.setColor(TEXT_COLOR);
+        StringBuilder line = new StringBuilder();
+        int column = 0;
+        for (Map.Entry<String, Integer> layer : layerCounts.get().entrySet()) {
+            line.append(String.format("%s %d  ", layer.getKey(), layer.getValue()));
+            if (++column % 3 == 0) {
+                g.drawString(line.toString(), MARGIN, y);
+                line.setLength(0);
+                y += LINE_HEIGHT;
+            }
+        }
+        if (line.length() > 0) {
+            g.drawString(line.toString(), MARGIN, y);
+            y += LINE_HEIGHT;
+        }
+        long acquisitions = 0;
+        long releases = 0;
+        for (ObjectPool<?> pool : pools) {
+            acquisitions += pool.getAcquisitions();
+            releases += pool.getReleases();
+        }
+        g.drawString(String.format("created %.0f/s  removed %.0f/s",
+                (acquisitions - lastAcquisitions) / elapsed, (releases - lastReleases) / elapsed), MARGIN, y);
+        return y + LINE_HEIGHT;
+    }
+}
@@ -0,0 +1,32 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event emitted whenever the quality governor moves to another tier.
+ */
+@Name("pepse.QualityChange")
+@Label("Quality Change")
+@Category({"PEPSE", "Quality"})
+@Description("The quality governor moved to another tier")
+public class QualityChangeEvent extends Event {
+
+    @Label("From Tier")
+    public String fromTier;
+
+    @Label("To Tier")
+    public String toTier;
+
+    @Label("Average Frame Time")
+    @Timespan(Timespan.MICROSECONDS)
+    public long averageFrameTime;
+
+    @Label("Restore Delay")
+    @Timespan(Timespan.MILLISECONDS)
+    public long restoreDelay;
+}
@@ -0,0 +1,53 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a game update that took longer than its threshold, 20 ms by default
+ * (configurable in the recording settings). Breaks the frame down into its phases.
+ */
+@Name("pepse.SlowFrame")
+@Label("Slow Frame")
+@Category({"PEPSE", "Frame"})
+@Description("A game update that took longer than the threshold")
+@Threshold("20 ms")
+public class SlowFrameEvent extends Event {
+
+    @Label("Delta Time")
+    @Description("Time since the previous frame, as reported by the engine")
+    @Timespan(Timespan.MILLISECONDS)
+    public long deltaTime;
+
+    @Label("Update Time")
+    @Description("Time spent updating the game objects")
+    @Timespan(Timespan.NANOSECONDS)
+    public long updateTime;
+
+    @Label("Build Time")
+    @Description("Time spent loading missing chunks")
+    @Timespan(Timespan.NANOSECONDS)
+    public long buildTime;
+
+    @Label("Remove Time")
+    @Description("Time spent unloading excess chunks")
+    @Timespan(Timespan.NANOSECONDS)
+    public long removeTime;
+
+    @Label("Scheduler Time")
+    @Description("Time spent running queued chunk work")
+    @Timespan(Timespan.NANOSECONDS)
+    public long schedulerTime;
+
+    @Label("Build Backlog")
+    @Description("Units of chunk work still queued after the frame")
+    public int backlog;
+
+    @Label("Loaded Chunks")
+    public int loadedChunks;
+}
@@ -0,0 +1,77 @@
+package pepse.hud;
+
+import danogl.collisions.GameObjectCollection;
+import danogl.util.Counter;
+import danogl.util.Vector2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The heads-up display: every on-screen readout, from the avatar's energy to the diagnostics,
+ * is a widget added through here, so they share one layer and only redraw when their value changes.
+ */
+public class Hud {
+
+    private final GameObjectCollection gameObjects;
+    private final int layer;
+    private final List<HudWidget> widgets;
+
+    /**
+     * @param gameObjects the collection the widgets are added to
+     * @param layer       the layer the widgets are drawn in
+     */
+    public Hud(GameObjectCollection gameObjects, int layer) {
+        this.gameObjects = gameObjects;
+        this.layer = layer;
+        widgets = new ArrayList<>();
+    }
+
+    /**
+     * Adds a widget to the display.
+     *
+     * @param widget the widget
+     * @param <T>    type of the widget
+     * @return the widget
+     */
+    public <T extends HudWidget> T add(T widget) {
+        widgets.add(widget);
+        gameObjects.addGameObject(widget, layer);
+        return widget;
+    }
+
+    /**
+     * Adds a readout of a counter, caching the texts of the values between min and max.
+     *
+     * @param topLeftCorner position of the readout on screen
+     * @param dimensions    size of the readout
+     * @param label         text shown before the value
+     * @param counter       the counter to show
+     * @param min           smallest value expected
+     * @param max           largest value expected
+     * @return the readout
+     */
+    public ValueWidget addCounter(Vector2 topLeftCorner, Vector2 dimensions, String label, Counter counter,
+                                  int min, int max) {
+        return add(new ValueWidget(topLeftCorner, dimensions, label, counter::value, min, max));
+    }
+
+    /**
+     * Removes a widget from the display.
+     *
+     * @param widget the widget
+     */
+    public void remove(HudWidget widget) {
+        if (widgets.remove(widget)) {
+            gameObjects.removeGameObject(widget, layer);
+        }
+    }
+
+    /**
+     * @return the widgets on display
+     */
+    public List<HudWidget> getWidgets() {
+        return Collections.unmodifiableList(widgets);
+    }
+}
@@ -0,0 +1,48 @@
+package pepse.hud;
+
+import danogl.GameObject;
+import danogl.components.CoordinateSpace;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+/**
+ * An element of the heads-up display, drawn in camera coordinates.
+ * A widget is only redrawn when it reports itself dirty, so a frame in which nothing changed
+ * costs a check and no allocation.
+ */
+public abstract class HudWidget extends GameObject {
+
+    /**
+     * @param topLeftCorner position of the widget on screen
+     * @param dimensions    size of the widget
+     */
+    protected HudWidget(Vector2 topLeftCorner, Vector2 dimensions) {
+        super(topLeftCorner, dimensions, null);
+        setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
+    }
+
+    @Override
+    public void update(float deltaTime) {
+        super.update(deltaTime);
+        if (isDirty()) {
+            Renderable renderable = redraw();
+            if (renderable != renderer().getRenderable()) {
+                renderer().setRenderable(renderable);
+            }
+        }
+    }
+
+    /**
+     * Checks whether what the widget shows is out of date. Called every frame, so it should be cheap.
+     *
+     * @return true if the widget needs to be redrawn
+     */
+    protected abstract boolean isDirty();
+
+    /**
+     * Brings the widget up to date.
+     *
+     * @return the renderable showing the current state, which may be the one already shown
+     */
+    protected abstract Renderable redraw();
+}
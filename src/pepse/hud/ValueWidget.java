@@ -0,0 +1,70 @@
+package pepse.hud;
+
+import danogl.gui.rendering.Renderable;
+import danogl.gui.rendering.TextRenderable;
+import danogl.util.Vector2;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Shows a label followed by an integer value, such as "Energy: 100".
+ * The text is only replaced when the value changes, and the texts of the values within
+ * a cached range are built once and reused.
+ */
+public class ValueWidget extends HudWidget {
+
+    private final String label;
+    private final IntSupplier value;
+    private final int cacheMin;
+    private final TextRenderable[] cache;
+    private int currentValue;
+    private int shownValue;
+    private boolean drawn;
+
+    /**
+     * @param topLeftCorner position of the widget on screen
+     * @param dimensions    size of the widget
+     * @param label         text shown before the value
+     * @param value         supplies the value
+     * @param cacheMin      smallest value whose text is cached
+     * @param cacheMax      largest value whose text is cached
+     */
+    public ValueWidget(Vector2 topLeftCorner, Vector2 dimensions, String label, IntSupplier value,
+                       int cacheMin, int cacheMax) {
+        super(topLeftCorner, dimensions);
+        this.label = label;
+        this.value = value;
+        this.cacheMin = cacheMin;
+        cache = new TextRenderable[Math.max(0, cacheMax - cacheMin + 1)];
+    }
+
+    @Override
+    protected boolean isDirty() {
+        currentValue = value.getAsInt();
+        return !drawn || currentValue != shownValue;
+    }
+
+    @Override
+    protected Renderable redraw() {
+        shownValue = currentValue;
+        drawn = true;
+        return textFor(currentValue);
+    }
+
+    /**
+     * Returns the text renderable of a value, from the cache when the value is in its range.
+     *
+     * @param value the value to show
+     * @return the renderable showing the label and the value
+     */
+    private TextRenderable textFor(int value) {
+        int slot = value - cacheMin;
+        if (slot < 0 || slot >= cache.length) {
+            return new TextRenderable(label + value);
+        }
+        if (cache[slot] == null) {
+            cache[slot] = new TextRenderable(label + value);
+        }
+        return cache[slot];
+    }
+}
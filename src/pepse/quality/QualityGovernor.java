@@ -0,0 +1,183 @@
+package pepse.quality;
+
+import pepse.diagnostics.QualityChangeEvent;
+import pepse.world.chunks.StreamingPolicy;
+import pepse.world.trees.Tree;
+import pepse.world.trees.Wind;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the frame rate near its target by trading quality for time.
+ * The governor averages the frame times over a rolling window. When the average misses the target
+ * by more than DEGRADE_RATIO it drops to the next lower QualityTier; once the target has been met for
+ * the restore delay it climbs back one tier. A climb that is followed by a drop soon after doubles the
+ * restore delay, so a machine that cannot hold a tier does not keep bouncing around it. Once a climb
+ * has held for STABLE_SECONDS without a drop, the delay is back to its minimum.
+ * After every change the window is refilled before the next decision, so a tier is judged on its own frames.
+ * Leaf and tree density apply to the chunks generated after the change; chunks already built keep theirs
+ * until they are unloaded. Hibernated chunks are only restored at the densities they were generated at,
+ * so once quality is restored the world regrows exactly as the seed describes it.
+ * Changes are logged, and recorded as flight recorder events.
+ */
+public class QualityGovernor {
+
+    private static final int WINDOW = 120;
+    private static final float DEGRADE_RATIO = 1.2f;
+    private static final float RESTORE_RATIO = 1.05f;
+    private static final float MAX_FRAME_SECONDS = 0.25f;
+    private static final float MIN_RESTORE_DELAY = 10f;
+    private static final float MAX_RESTORE_DELAY = 160f;
+    private static final float STABLE_SECONDS = 60f;
+    private static final System.Logger LOGGER = System.getLogger(QualityGovernor.class.getName());
+
+    private final float targetFrameSeconds;
+    private final Tree tree;
+    private final Wind wind;
+    private final StreamingPolicy streamingPolicy;
+    private final float[] frameSeconds;
+    private float windowSum;
+    private int nextFrame;
+    private int recordedFrames;
+    private QualityTier tier;
+    private float timeMeetingTarget;
+    private float sinceRestore;
+    private float sinceDegrade;
+    private float restoreDelay;
+    private int changes;
+
+    /**
+     * Creates a governor at full quality.
+     *
+     * @param targetFrameSeconds the frame time to hold, in seconds
+     * @param tree               the trees, whose leaf and tree density are governed
+     * @param wind               the wind, whose leaf sway is governed
+     * @param streamingPolicy    the streaming policy, whose build and removal distances are governed
+     */
+    public QualityGovernor(float targetFrameSeconds, Tree tree, Wind wind, StreamingPolicy streamingPolicy) {
+        this.targetFrameSeconds = targetFrameSeconds;
+        this.tree = tree;
+        this.wind = wind;
+        this.streamingPolicy = streamingPolicy;
+        frameSeconds = new float[WINDOW];
+        restoreDelay = MIN_RESTORE_DELAY;
+        sinceRestore = Float.POSITIVE_INFINITY;
+        tier = QualityTier.FULL;
+        apply(tier);
+    }
+
+    /**
+     * Records the time of a frame and changes tier if the frame times call for it.
+     * Should be called once per frame. Hitches longer than MAX_FRAME_SECONDS, such as a pause,
+     * are counted as MAX_FRAME_SECONDS.
+     *
+     * @param deltaTime seconds since the previous frame
+     */
+    public void update(float deltaTime) {
+        float frame = Math.min(deltaTime, MAX_FRAME_SECONDS);
+        windowSum += frame - frameSeconds[nextFrame];
+        frameSeconds[nextFrame] = frame;
+        nextFrame = (nextFrame + 1) % WINDOW;
+        recordedFrames = Math.min(recordedFrames + 1, WINDOW);
+        sinceRestore += deltaTime;
+        sinceDegrade += deltaTime;
+        if (sinceRestore >= STABLE_SECONDS && sinceRestore < sinceDegrade) {
+            restoreDelay = MIN_RESTORE_DELAY;
+        }
+        if (recordedFrames < WINDOW) {
+            return;
+        }
+        float average = getAverageFrameSeconds();
+        if (average > targetFrameSeconds * DEGRADE_RATIO) {
+            timeMeetingTarget = 0;
+            if (tier.lower() != tier) {
+                if (sinceRestore < restoreDelay) {
+                    restoreDelay = Math.min(2 * restoreDelay, MAX_RESTORE_DELAY);
+                }
+                sinceDegrade = 0;
+                changeTier(tier.lower(), average);
+            }
+        } else if (average <= targetFrameSeconds * RESTORE_RATIO) {
+            timeMeetingTarget += deltaTime;
+            if (timeMeetingTarget >= restoreDelay && tier.higher() != tier) {
+                sinceRestore = 0;
+                changeTier(tier.higher(), average);
+            }
+        } else {
+            timeMeetingTarget = 0;
+        }
+    }
+
+    /**
+     * Moves to another tier, applies it, logs the change and restarts the window.
+     *
+     * @param next    the new tier
+     * @param average the average frame time that led to the change, in seconds
+     */
+    private void changeTier(QualityTier next, float average) {
+        QualityTier previous = tier;
+        tier = next;
+        changes++;
+        apply(next);
+        LOGGER.log(System.Logger.Level.INFO, "Quality {0} -> {1}, average frame {2} ms",
+                previous, next, String.format("%.1f", average * 1000));
+        QualityChangeEvent event = new QualityChangeEvent();
+        if (event.shouldCommit()) {
+            event.fromTier = previous.name();
+            event.toTier = next.name();
+            event.averageFrameTime = (long) (average * 1_000_000);
+            event.restoreDelay = (long) (restoreDelay * 1000);
+            event.commit();
+        }
+        windowSum = 0;
+        recordedFrames = 0;
+        timeMeetingTarget = 0;
+        Arrays.fill(frameSeconds, 0);
+    }
+
+    /**
+     * Sets every governed setting to the values of a tier.
+     *
+     * @param tier the tier to apply
+     */
+    private void apply(QualityTier tier) {
+        tree.setLeafPlantPercentage(tier.getLeafPlantPercentage());
+        tree.setTreePlantPercentage(tier.getTreePlantPercentage());
+        wind.setEnabled(tier.isLeafSway());
+        streamingPolicy.setDistanceScale(tier.getDistanceScale());
+    }
+
+    /**
+     * @return the current tier
+     */
+    public QualityTier getTier() {
+        return tier;
+    }
+
+    /**
+     * @return number of tier changes so far
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return seconds the target must be met before climbing back a tier
+     */
+    public float getRestoreDelay() {
+        return restoreDelay;
+    }
+
+    /**
+     * @return average frame time over the frames recorded since the last change, in seconds
+     */
+    public float getAverageFrameSeconds() {
+        return recordedFrames == 0 ? 0 : windowSum / recordedFrames;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, %d changes, average frame %.1f ms",
+                tier, changes, getAverageFrameSeconds() * 1000);
+    }
+}
@@ -0,0 +1,79 @@
+package pepse.quality;
+
+import pepse.world.trees.Tree;
+
+/**
+ * The steps the quality governor degrades the world through, from full quality down.
+ * Each tier gives up one more thing than the one before it: first leaf density, then the leaf sway,
+ * then the distance the world is built around the window, and last the tree density.
+ * Full quality uses the densities of the baseline world, so it matches the chunks generated without a governor.
+ */
+public enum QualityTier {
+
+    FULL(Tree.LEAF_PLANT_PERCENTAGE, true, 1f, Tree.TREE_PLANT_PERCENTAGE),
+    FEWER_LEAVES(5, true, 1f, Tree.TREE_PLANT_PERCENTAGE),
+    STILL_LEAVES(5, false, 1f, Tree.TREE_PLANT_PERCENTAGE),
+    SHORT_RANGE(5, false, 0.7f, Tree.TREE_PLANT_PERCENTAGE),
+    SPARSE_TREES(5, false, 0.7f, 6);
+
+    private final int leafPlantPercentage;
+    private final boolean leafSway;
+    private final float distanceScale;
+    private final int treePlantPercentage;
+
+    /**
+     * @param leafPlantPercentage chance out of 10 that a leaf grows at each spot around a tree top
+     * @param leafSway            whether the wind sways the leaves
+     * @param distanceScale       factor applied to the build and removal distances
+     * @param treePlantPercentage chance out of 100 that a column rolls a tree planting
+     */
+    QualityTier(int leafPlantPercentage, boolean leafSway, float distanceScale, int treePlantPercentage) {
+        this.leafPlantPercentage = leafPlantPercentage;
+        this.leafSway = leafSway;
+        this.distanceScale = distanceScale;
+        this.treePlantPercentage = treePlantPercentage;
+    }
+
+    /**
+     * @return chance out of 10 that a leaf grows at each spot around a tree top
+     */
+    public int getLeafPlantPercentage() {
+        return leafPlantPercentage;
+    }
+
+    /**
+     * @return whether the wind sways the leaves
+     */
+    public boolean isLeafSway() {
+        return leafSway;
+    }
+
+    /**
+     * @return factor applied to the build and removal distances
+     */
+    public float getDistanceScale() {
+        return distanceScale;
+    }
+
+    /**
+     * @return chance out of 100 that a column rolls a tree planting
+     */
+    public int getTreePlantPercentage() {
+        return treePlantPercentage;
+    }
+
+    /**
+     * @return the next lower tier, or this tier if it is the lowest
+     */
+    public QualityTier lower() {
+        QualityTier[] tiers = values();
+        return tiers[Math.min(ordinal() + 1, tiers.length - 1)];
+    }
+
+    /**
+     * @return the next higher tier, or this tier if it is the highest
+     */
+    public QualityTier higher() {
+        return values()[Math.max(ordinal() - 1, 0)];
+    }
+}
@@ -0,0 +1,62 @@
+package pepse.util;
+
+import danogl.gui.rendering.RectangleRenderable;
+import danogl.gui.rendering.Renderable;
+
+import java.awt.*;
+import java.util.SplittableRandom;
+
+/**
+ * A fixed set of color variants of a base color, each with a prebuilt renderable.
+ * Objects refer to a variant by its index and share its renderable, instead of allocating
+ * a color and a renderable of their own.
+ */
+public class ColorPalette {
+
+    private final Color[] colors;
+    private final Renderable[] renderables;
+
+    /**
+     * @param colors the variants of the palette, at most Byte.MAX_VALUE + 1 of them
+     */
+    public ColorPalette(Color[] colors) {
+        this.colors = colors;
+        renderables = new Renderable[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            renderables[i] = new RectangleRenderable(colors[i]);
+        }
+    }
+
+    /**
+     * @return number of variants in the palette
+     */
+    public int size() {
+        return colors.length;
+    }
+
+    /**
+     * @param index index of a variant
+     * @return the color of the variant
+     */
+    public Color getColor(int index) {
+        return colors[index];
+    }
+
+    /**
+     * @param index index of a variant
+     * @return the shared renderable of the variant
+     */
+    public Renderable getRenderable(int index) {
+        return renderables[index];
+    }
+
+    /**
+     * Picks a random variant.
+     *
+     * @param random the generator to draw from
+     * @return the index of the picked variant
+     */
+    public byte pickIndex(SplittableRandom random) {
+        return (byte) random.nextInt(colors.length);
+    }
+}
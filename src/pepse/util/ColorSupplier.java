@@ -1,7 +1,10 @@
 package pepse.util;
 
 import java.awt.*;
+import java.util.Map;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides procedurally-generated colors around a pivot.
@@ -9,7 +12,9 @@ import java.util.Random;
  */
 public final class ColorSupplier {
     private static final int DEFAULT_COLOR_DELTA = 10;
+    private static final int PALETTE_SIZE = 16;
     private final static Random random = new Random();
+    private final static Map<Color, ColorPalette> palettes = new ConcurrentHashMap<>();
 
     /**
      * Returns a color similar to baseColor, with a default delta.
@@ -36,6 +41,61 @@ public final class ColorSupplier {
                 randomChannelInRange(baseColor.getBlue()-colorDelta, baseColor.getBlue()+colorDelta));
     }
 
+    /**
+     * Returns a color similar to baseColor, with a default delta, drawn from the given generator.
+     * Used by world generation so colors are reproducible for a position.
+     *
+     * @param baseColor A color that we wish to approximate.
+     * @param random    The generator to draw the channels from.
+     * @return A color similar to baseColor.
+     */
+    public static Color approximateColor(Color baseColor, SplittableRandom random) {
+        return approximateColor(baseColor, DEFAULT_COLOR_DELTA, random);
+    }
+
+    /**
+     * Returns a color similar to baseColor, with a difference of at most colorDelta,
+     * drawn from the given generator.
+     *
+     * @param baseColor A color that we wish to approximate.
+     * @param colorDelta The maximal difference (per channel) between the sampled color and the base color.
+     * @param random    The generator to draw the channels from.
+     * @return A color similar to baseColor.
+     */
+    public static Color approximateColor(Color baseColor, int colorDelta, SplittableRandom random) {
+        return new Color(
+                clip(random.nextInt(2 * colorDelta + 1) + baseColor.getRed() - colorDelta),
+                clip(random.nextInt(2 * colorDelta + 1) + baseColor.getGreen() - colorDelta),
+                clip(random.nextInt(2 * colorDelta + 1) + baseColor.getBlue() - colorDelta));
+    }
+
+    /**
+     * Returns the shared palette of baseColor: PALETTE_SIZE colors similar to it, with a default delta.
+     * The variants are seeded by the base color itself, so the palette is the same on every run,
+     * and it is built once and cached. Safe to call from any thread.
+     *
+     * @param baseColor A color that we wish to approximate.
+     * @return The palette of baseColor.
+     */
+    public static ColorPalette palette(Color baseColor) {
+        return palettes.computeIfAbsent(baseColor, ColorSupplier::createPalette);
+    }
+
+    /**
+     * Builds the palette of a base color.
+     *
+     * @param baseColor A color that we wish to approximate.
+     * @return A new palette of baseColor.
+     */
+    private static ColorPalette createPalette(Color baseColor) {
+        SplittableRandom paletteRandom = new SplittableRandom(baseColor.getRGB());
+        Color[] colors = new Color[PALETTE_SIZE];
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            colors[i] = approximateColor(baseColor, paletteRandom);
+        }
+        return new ColorPalette(colors);
+    }
+
     /**
      * This method generates a random value for a color channel within the given range [min, max].
      *
@@ -45,6 +105,16 @@ public final class ColorSupplier {
      */
     private static int randomChannelInRange(int min, int max) {
         int channel = random.nextInt(max-min+1) + min;
+        return clip(channel);
+    }
+
+    /**
+     * Clips a channel value to [0,255].
+     *
+     * @param channel The channel value.
+     * @return The clipped value.
+     */
+    private static int clip(int channel) {
         return Math.min(255, Math.max(channel, 0));
     }
 }
@@ -0,0 +1,107 @@
+package pepse.util;
+
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of reusable objects.
+ * Released objects are handed out again by acquire() instead of allocating new ones,
+ * the caller is responsible for resetting their state.
+ *
+ * @param <T> type of the pooled objects
+ */
+public class ObjectPool<T> {
+
+    private final Supplier<T> factory;
+    private final int capacity;
+    private final ArrayDeque<T> free;
+    private long hits;
+    private long misses;
+    private long releases;
+
+    /**
+     * @param factory  creates a new object when the pool is empty
+     * @param capacity maximal number of idle objects kept by the pool
+     */
+    public ObjectPool(Supplier<T> factory, int capacity) {
+        this.factory = factory;
+        this.capacity = capacity;
+        free = new ArrayDeque<>();
+    }
+
+    /**
+     * Returns an idle object from the pool, or a new one if the pool is empty.
+     *
+     * @return an object ready to be reset and used
+     */
+    public T acquire() {
+        T object = free.poll();
+        if (object != null) {
+            hits++;
+            return object;
+        }
+        misses++;
+        return factory.get();
+    }
+
+    /**
+     * Returns an object that is no longer used to the pool.
+     * If the pool is full the object is left for the garbage collector.
+     *
+     * @param object the object to recycle
+     */
+    public void release(T object) {
+        releases++;
+        if (free.size() < capacity) {
+            free.push(object);
+        }
+    }
+
+    /**
+     * @return number of acquisitions served by a recycled object
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of acquisitions that had to allocate a new object
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of objects handed out so far, recycled or new
+     */
+    public long getAcquisitions() {
+        return hits + misses;
+    }
+
+    /**
+     * @return number of objects returned to the pool so far, kept or not
+     */
+    public long getReleases() {
+        return releases;
+    }
+
+    /**
+     * @return number of idle objects currently held by the pool
+     */
+    public int size() {
+        return free.size();
+    }
+
+    /**
+     * @return fraction of acquisitions served by a recycled object, 0 if nothing was acquired yet
+     */
+    public float getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (float) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d idle=%d hitRate=%.2f", hits, misses, free.size(), getHitRate());
+    }
+}
@@ -0,0 +1,131 @@
+package pepse.util;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates the time spent in the named phases of a frame.
+ * Phases are identified by their index, and timings are kept in primitive arrays,
+ * so recording a phase allocates nothing.
+ * Calls are chained: each record returns the time it ended at, which is the start of the next phase.
+ */
+public class PhaseTimer {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final String[] names;
+    private final long[] totalNanos;
+    private final long[] maxNanos;
+    private final long[] lastNanos;
+    private final int[] counts;
+
+    /**
+     * @param names the names of the phases, in index order
+     */
+    public PhaseTimer(String... names) {
+        this.names = names;
+        totalNanos = new long[names.length];
+        maxNanos = new long[names.length];
+        lastNanos = new long[names.length];
+        counts = new int[names.length];
+    }
+
+    /**
+     * Records a phase that started at the given time and ends now.
+     *
+     * @param phase      index of the phase
+     * @param startNanos System.nanoTime() at the start of the phase
+     * @return System.nanoTime() at the end of the phase
+     */
+    public long record(int phase, long startNanos) {
+        long now = System.nanoTime();
+        long elapsed = now - startNanos;
+        totalNanos[phase] += elapsed;
+        maxNanos[phase] = Math.max(maxNanos[phase], elapsed);
+        lastNanos[phase] = elapsed;
+        counts[phase]++;
+        return now;
+    }
+
+    /**
+     * Forgets all recorded timings.
+     */
+    public void reset() {
+        Arrays.fill(totalNanos, 0);
+        Arrays.fill(maxNanos, 0);
+        Arrays.fill(lastNanos, 0);
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * @return number of phases
+     */
+    public int getPhaseCount() {
+        return names.length;
+    }
+
+    /**
+     * @param phase index of the phase
+     * @return name of the phase
+     */
+    public String getName(int phase) {
+        return names[phase];
+    }
+
+    /**
+     * @param phase index of the phase
+     * @return number of times the phase was recorded
+     */
+    public int getCount(int phase) {
+        return counts[phase];
+    }
+
+    /**
+     * @param phase index of the phase
+     * @return mean time spent in the phase, in milliseconds
+     */
+    public double getAverageMillis(int phase) {
+        return counts[phase] == 0 ? 0 : totalNanos[phase] / NANOS_PER_MILLI / counts[phase];
+    }
+
+    /**
+     * @param phase index of the phase
+     * @return longest time spent in the phase, in milliseconds
+     */
+    public double getMaxMillis(int phase) {
+        return maxNanos[phase] / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param phase index of the phase
+     * @return time spent in the phase the last time it was recorded, in milliseconds
+     */
+    public double getLastMillis(int phase) {
+        return lastNanos[phase] / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param phase index of the phase
+     * @return time spent in the phase the last time it was recorded, in nanoseconds
+     */
+    public long getLastNanos(int phase) {
+        return lastNanos[phase];
+    }
+
+    /**
+     * @param phase index of the phase
+     * @return total time spent in the phase, in milliseconds
+     */
+    public double getTotalMillis(int phase) {
+        return totalNanos[phase] / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (int phase = 0; phase < names.length; phase++) {
+            report.append(String.format("%-12s avg %7.3f ms  max %7.3f ms  total %9.1f ms%n",
+                    names[phase], getAverageMillis(phase), getMaxMillis(phase), getTotalMillis(phase)));
+        }
+        return report.toString();
+    }
+}
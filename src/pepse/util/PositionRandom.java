@@ -0,0 +1,73 @@
+package pepse.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * Stateless randomness keyed on a world seed and a position (column index, chunk index...).
+ * The same (seed, position) always yields the same values, no matter in which order or on which
+ * thread regions of the world are generated.
+ */
+public final class PositionRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private PositionRandom() {
+    }
+
+    /**
+     * Mixes a seed and a position into a well distributed 64 bit hash.
+     *
+     * @param seed     the world seed
+     * @param position the position to key on
+     * @return the hash of the pair
+     */
+    public static long hash(long seed, long position) {
+        return mix(mix(seed) + position * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Mixes a seed, a position and a salt, so different features at the same position are independent.
+     *
+     * @param seed     the world seed
+     * @param position the position to key on
+     * @param salt     distinguishes the feature being generated
+     * @return the hash of the triple
+     */
+    public static long hash(long seed, long position, long salt) {
+        return hash(hash(seed, position), salt);
+    }
+
+    /**
+     * Returns a value in [0, bound) determined by the seed, position and salt, without allocating.
+     *
+     * @param seed     the world seed
+     * @param position the position to key on
+     * @param salt     distinguishes the feature being generated
+     * @param bound    exclusive upper bound, must be positive
+     * @return a value in [0, bound)
+     */
+    public static int intAt(long seed, long position, long salt, int bound) {
+        return (int) Math.floorMod(hash(seed, position, salt), (long) bound);
+    }
+
+    /**
+     * Returns a random generator seeded by the seed, position and salt.
+     *
+     * @param seed     the world seed
+     * @param position the position to key on
+     * @param salt     distinguishes the feature being generated
+     * @return a new generator, private to the caller
+     */
+    public static SplittableRandom at(long seed, long position, long salt) {
+        return new SplittableRandom(hash(seed, position, salt));
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,30 +1,30 @@
 package pepse.world;
 
 import danogl.GameObject;
-import danogl.collisions.Collision;
 import danogl.collisions.GameObjectCollection;
 import danogl.gui.ImageReader;
-import danogl.gui.UserInputListener;
 import danogl.gui.rendering.*;
 import danogl.util.Counter;
 import danogl.util.Vector2;
 
 import java.awt.event.KeyEvent;
+import java.util.function.IntPredicate;
 
 public class Avatar extends GameObject {
 
-    private static final float RUN_VELOCITY = 300f;
+    public static final float RUN_VELOCITY = 300f;
     private static final int JUMP_VELOCITY = 350;
     private static final float AVATAR_CAMERA_OFFSET = 60f;
     private static final float GRAVITY = 200f;
     public static final String AVATAR_PATH = "assets/character.png";
     public static final String AVATAR_TAG = "avatar";
     public static final int INIT_COUNTER_VALUE = 100;
-    public static final String GROUND_TAG = "ground";
     public static final int STOP_VELOCITY_Y = 0;
     public static final int MAX_HEALTH = 100;
-    private final UserInputListener inputListener;
+    private static final float STEP_TOLERANCE = 1f;
+    private final IntPredicate keyPressed;
     private final Counter energyCounter;
+    private final HeightField heightField;
 
     /**
      * Construct a new GameObject instance.
@@ -33,13 +33,16 @@ public class Avatar extends GameObject {
      *                      Note that (0,0) is the top-left corner of the window.
      * @param dimensions    Width and height in window coordinates.
      * @param renderable    The renderable representing the object. Can be null, in which case
+     * @param keyPressed    Tells whether a key (by KeyEvent key code) is held down.
+     * @param heightField   The ground height field the avatar walks on.
      */
     public Avatar(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable,
-                  UserInputListener inputListener, Counter energyCounter) {
+                  IntPredicate keyPressed, Counter energyCounter, HeightField heightField) {
         super(topLeftCorner, dimensions, renderable);
-        this.inputListener = inputListener;
+        this.keyPressed = keyPressed;
         physics().preventIntersectionsFromDirection(Vector2.ZERO);
         this.energyCounter = energyCounter;
+        this.heightField = heightField;
     }
 
     /**
@@ -58,17 +61,19 @@ public class Avatar extends GameObject {
      * @param gameObjects   the collection of game objects to which the avatar will be added
      * @param layer         the layer at which the avatar will be rendered in the game
      * @param topLeftCorner the top-left corner of the avatar's bounding box
-     * @param inputListener the user input listener for the avatar
-     * @param imageReader   the image reader used to load the avatar's image
+     * @param keyPressed    tells whether a key is held down, usually the user input listener's isKeyPressed
+     * @param imageReader   the image reader used to load the avatar's image, or null to draw it with no image
+     * @param heightField   the ground height field the avatar walks on
      * @return the created Avatar object
      */
     public static Avatar create(GameObjectCollection gameObjects,
                                 int layer, Vector2 topLeftCorner,
-                                UserInputListener inputListener,
-                                ImageReader imageReader) {
-        Renderable image = imageReader.readImage(AVATAR_PATH, false);
-        Avatar avatar = new Avatar(topLeftCorner, Vector2.ONES.mult(AVATAR_CAMERA_OFFSET), image, inputListener,
-                new Counter(INIT_COUNTER_VALUE));
+                                IntPredicate keyPressed,
+                                ImageReader imageReader,
+                                HeightField heightField) {
+        Renderable image = imageReader == null ? null : imageReader.readImage(AVATAR_PATH, false);
+        Avatar avatar = new Avatar(topLeftCorner, Vector2.ONES.mult(AVATAR_CAMERA_OFFSET), image, keyPressed,
+                new Counter(INIT_COUNTER_VALUE), heightField);
         avatar.transform().setAccelerationY(GRAVITY);
         avatar.setTag(AVATAR_TAG);
         gameObjects.addGameObject(avatar, layer);
@@ -90,24 +95,24 @@ public class Avatar extends GameObject {
      */
     private void keyPressActions() {
 
-        if (inputListener.isKeyPressed(KeyEvent.VK_SPACE) &&
-                inputListener.isKeyPressed(KeyEvent.VK_SHIFT) &&
+        if (keyPressed.test(KeyEvent.VK_SPACE) &&
+                keyPressed.test(KeyEvent.VK_SHIFT) &&
                 energyCounter.value() > 0) {
             transform().setAccelerationY(-GRAVITY);
             energyCounter.decrement();
         } else {
             transform().setAccelerationY(GRAVITY);
         }
-        if (inputListener.isKeyPressed(KeyEvent.VK_SPACE) &&
+        if (keyPressed.test(KeyEvent.VK_SPACE) &&
                 this.getVelocity().y() == STOP_VELOCITY_Y) {
             transform().setVelocity(Vector2.UP.mult(JUMP_VELOCITY));
         }
 
-        if (inputListener.isKeyPressed(KeyEvent.VK_LEFT)) {
+        if (keyPressed.test(KeyEvent.VK_LEFT)) {
             renderer().setIsFlippedHorizontally(true);
             transform().setVelocityX(-RUN_VELOCITY);
         } else {
-            if (inputListener.isKeyPressed(KeyEvent.VK_RIGHT)) {
+            if (keyPressed.test(KeyEvent.VK_RIGHT)) {
                 renderer().setIsFlippedHorizontally(false);
                 transform().setVelocityX(RUN_VELOCITY);
             } else
@@ -119,18 +124,48 @@ public class Avatar extends GameObject {
 
     @Override
     public void update(float deltaTime) {
+        float previousX = getTopLeftCorner().x();
+        float previousBottom = getTopLeftCorner().y() + getDimensions().y();
         super.update(deltaTime);
+        resolveGroundContact(previousX, previousBottom);
         if (getVelocity().y() == STOP_VELOCITY_Y && energyCounter.value() < MAX_HEALTH) {
             energyCounter.increment();
         }
         keyPressActions();
     }
 
-    @Override
-    public void onCollisionEnter(GameObject other, Collision collision) {
-        super.onCollisionEnter(other, collision);
-        if (other.getTag().equals(GROUND_TAG)) {
+    /**
+     * Resolves contact with the terrain through the height field.
+     * If the avatar sank below the ground it was above last frame, it lands on it;
+     * if it walked into a column taller than where it stands, its horizontal move is undone.
+     *
+     * @param previousX      the left edge of the avatar before this frame's move
+     * @param previousBottom the bottom edge of the avatar before this frame's move
+     */
+    private void resolveGroundContact(float previousX, float previousBottom) {
+        float bottom = getTopLeftCorner().y() + getDimensions().y();
+        float groundTop = groundTopUnderAvatar();
+        if (bottom <= groundTop) {
+            return;
+        }
+        if (previousBottom > groundTop + STEP_TOLERANCE) {
+            setTopLeftCorner(new Vector2(previousX, getTopLeftCorner().y()));
+            groundTop = groundTopUnderAvatar();
+            if (bottom <= groundTop) {
+                return;
+            }
+        }
+        setTopLeftCorner(new Vector2(getTopLeftCorner().x(), groundTop - getDimensions().y()));
+        if (getVelocity().y() > STOP_VELOCITY_Y) {
             transform().setVelocityY(STOP_VELOCITY_Y);
         }
     }
+
+    /**
+     * @return the highest ground surface under the avatar's current horizontal span
+     */
+    private float groundTopUnderAvatar() {
+        float left = getTopLeftCorner().x();
+        return heightField.groundTopUnder(left, left + getDimensions().x());
+    }
 }
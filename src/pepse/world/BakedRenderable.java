@@ -0,0 +1,49 @@
+package pepse.world;
+
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws a pre-rendered image stretched over the dimensions of its object, in a single draw call.
+ * Used for terrain that was rasterized once instead of being drawn tile by tile every frame.
+ * The image is scaled without interpolation, so a low resolution image keeps sharp tile edges.
+ */
+public class BakedRenderable implements Renderable {
+
+    private final BufferedImage image;
+
+    /**
+     * @param image the pre-rendered image
+     */
+    public BakedRenderable(BufferedImage image) {
+        this.image = image;
+    }
+
+    /**
+     * @return the pre-rendered image
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    @Override
+    public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                       double degreesCounterClockwise, boolean isFlippedHorizontally,
+                       boolean isFlippedVertically, double opaqueness) {
+        Composite oldComposite = g.getComposite();
+        Object oldInterpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        if (opaqueness < 1) {
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) opaqueness));
+        }
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(image, Math.round(topLeftCorner.x()), Math.round(topLeftCorner.y()),
+                Math.round(dimensions.x()), Math.round(dimensions.y()), null);
+        if (oldInterpolation != null) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, oldInterpolation);
+        }
+        g.setComposite(oldComposite);
+    }
+}
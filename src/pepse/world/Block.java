@@ -11,10 +11,59 @@ public class Block extends GameObject {
 
     public static final float SIZE = 40;
 
+    private Renderable renderable;
+    private boolean culled;
+
     public Block(Vector2 topLeftCorner, Renderable renderable) {
-        super(topLeftCorner, Vector2.ONES.mult(SIZE), renderable);
+        this(topLeftCorner, Vector2.ONES.mult(SIZE), renderable);
+    }
+
+    /**
+     * Constructs an immovable block spanning several tiles, used as a single merged collider.
+     *
+     * @param topLeftCorner Position of the block, in window coordinates (pixels).
+     * @param dimensions    Width and height of the block, normally multiples of SIZE.
+     * @param renderable    The renderable representing the block.
+     */
+    public Block(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable) {
+        super(topLeftCorner, dimensions, renderable);
+        this.renderable = renderable;
         physics().preventIntersectionsFromDirection(Vector2.ZERO);
         physics().setMass(GameObjectPhysics.IMMOVABLE_MASS); //
     }
 
+    /**
+     * Prepares a recycled block for reuse at a new place.
+     *
+     * @param topLeftCorner new position of the block
+     * @param dimensions    new width and height of the block
+     * @param renderable    new renderable of the block
+     * @param tag           new tag of the block
+     */
+    public void reset(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable, String tag) {
+        setDimensions(dimensions);
+        setTopLeftCorner(topLeftCorner);
+        this.renderable = renderable;
+        culled = false;
+        renderer().setRenderable(renderable);
+        setTag(tag);
+    }
+
+    /**
+     * Stops or resumes drawing the block, keeping its renderable to draw it with again.
+     *
+     * @param culled true to stop drawing the block
+     */
+    public void setCulled(boolean culled) {
+        this.culled = culled;
+        renderer().setRenderable(culled ? null : renderable);
+    }
+
+    /**
+     * @return true if the block is not drawn
+     */
+    public boolean isCulled() {
+        return culled;
+    }
+
 }
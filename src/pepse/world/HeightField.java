@@ -0,0 +1,42 @@
+package pepse.world;
+
+/**
+ * Resolves ground contact against the terrain surface directly, without terrain colliders.
+ * Lookups are served by the terrain's column height cache, so a lookup is a table read.
+ */
+public class HeightField {
+
+    private final Terrain terrain;
+
+    /**
+     * @param terrain the terrain the heights come from
+     */
+    public HeightField(Terrain terrain) {
+        this.terrain = terrain;
+    }
+
+    /**
+     * Returns the y coordinate of the ground surface in the column containing x.
+     *
+     * @param x x coordinate in world space
+     * @return the top y coordinate of the column
+     */
+    public float groundTopAt(float x) {
+        return terrain.columnTopAt(x);
+    }
+
+    /**
+     * Returns the highest ground surface (smallest y) under a horizontal span.
+     *
+     * @param minX left edge of the span
+     * @param maxX right edge of the span (exclusive)
+     * @return the smallest top y coordinate of the columns the span covers
+     */
+    public float groundTopUnder(float minX, float maxX) {
+        float top = groundTopAt(minX);
+        for (float x = (float) (Math.floor(minX / Block.SIZE) + 1) * Block.SIZE; x < maxX; x += Block.SIZE) {
+            top = Math.min(top, groundTopAt(x));
+        }
+        return top;
+    }
+}
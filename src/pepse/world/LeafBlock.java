@@ -1,13 +1,21 @@
 package pepse.world;
 
 import danogl.GameObject;
-import danogl.collisions.Collision;
 import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
 
 public class LeafBlock extends GameObject {
 
-    private boolean transitionsActive;
+    private static final Vector2 BASE_DIMENSIONS = Vector2.ONES.mult(Block.SIZE);
+
+    private Vector2 homePosition;
+    private float swayAmplitude;
+    private Renderable leafRenderable;
+    private int colorIndex;
+    private boolean detached;
+    private boolean culled;
+    private boolean asleep;
+    private int lifeEpoch;
 
     /**
      * Construct a new GameObject instance.
@@ -17,46 +25,133 @@ public class LeafBlock extends GameObject {
      * @param renderable    The renderable representing the object. Can be null, in which case
      */
     public LeafBlock(Vector2 topLeftCorner, Renderable renderable) {
-        super(topLeftCorner, Vector2.ONES.mult(Block.SIZE), renderable);
-        transitionsActive = false;
+        super(topLeftCorner, BASE_DIMENSIONS, renderable);
+        homePosition = topLeftCorner;
+        leafRenderable = renderable;
+    }
+
+    /**
+     * Prepares a recycled leaf for reuse on a new tree: moves it to its new home position
+     * and shows it again, upright and at its base size, if it had fallen, was culled or was swayed.
+     * Its previous life cycle is cancelled.
+     *
+     * @param topLeftCorner the new home position of the leaf
+     * @param renderable    the new renderable of the leaf
+     * @param colorIndex    palette index of the leaf's color
+     */
+    public void reset(Vector2 topLeftCorner, Renderable renderable, int colorIndex) {
+        cancelLife();
+        homePosition = topLeftCorner;
+        leafRenderable = renderable;
+        this.colorIndex = colorIndex;
+        detached = false;
+        culled = false;
+        asleep = false;
+        setTopLeftCorner(topLeftCorner);
+        renderer().setRenderable(renderable);
+        rest();
+    }
+
+    /**
+     * Undoes the sway of the wind: turns the leaf upright and returns it to its base size.
+     */
+    public void rest() {
+        renderer().setRenderableAngle(0);
+        setDimensions(BASE_DIMENSIONS);
+    }
+
+    /**
+     * @return palette index of the leaf's color
+     */
+    public int getColorIndex() {
+        return colorIndex;
+    }
+
+    /**
+     * Sets how strongly this leaf reacts to the wind.
+     *
+     * @param swayAmplitude maximal sway angle in degrees, its sign sets the initial direction
+     */
+    public void setSwayAmplitude(float swayAmplitude) {
+        this.swayAmplitude = swayAmplitude;
+    }
+
+    /**
+     * @return maximal sway angle in degrees
+     */
+    public float getSwayAmplitude() {
+        return swayAmplitude;
     }
 
-    public void fall(float yCoordinate) {
-        this.transform().setTopLeftCorner(new Vector2(
-                this.getTopLeftCorner().x(),
-                yCoordinate
-        ));
+    /**
+     * Returns the position the leaf grows at, and returns to after falling.
+     *
+     * @return the home top left corner of the leaf
+     */
+    public Vector2 getHomePosition() {
+        return homePosition;
     }
 
+    /**
+     * Returns the epoch of the leaf's life cycle. It changes whenever the cycle is cancelled,
+     * so scheduled steps of an older cycle can tell they are stale.
+     *
+     * @return the current life epoch
+     */
+    public int getLifeEpoch() {
+        return lifeEpoch;
+    }
 
-    @Override
-    public void onCollisionEnter(GameObject other, Collision collision) {
-        super.onCollisionEnter(other, collision);
-        this.transform().setVelocity(Vector2.ZERO);
-        this.transform().setAccelerationY(0);
+    /**
+     * Cancels the leaf's life cycle, used when the leaf is removed from the world.
+     */
+    public void cancelLife() {
+        lifeEpoch++;
     }
 
-    @Override
-    public void update(float deltaTime) {
-        super.update(deltaTime);
+    /**
+     * @return true if the leaf's chunk is asleep, in which case the leaf does not fall
+     */
+    public boolean isAsleep() {
+        return asleep;
+    }
+
+    /**
+     * @param asleep whether the leaf's chunk is asleep, in which case the leaf does not fall
+     */
+    public void setAsleep(boolean asleep) {
+        this.asleep = asleep;
+    }
+
+    /**
+     * Detaches the leaf from its tree: it stops being drawn, while a particle falls in its place.
+     */
+    public void detach() {
+        detached = true;
+        renderer().setRenderable(null);
     }
 
     /**
-     * Returns whether transitions between levels are currently active.
+     * Grows the leaf back at its home position.
      *
-     * @return true if transitions are active, false otherwise
+     * @param opacity opacity of the grown leaf
      */
-    public boolean isTransitionsActive() {
-        return transitionsActive;
+    public void regrow(float opacity) {
+        detached = false;
+        renderer().setOpaqueness(opacity);
+        if (!culled) {
+            renderer().setRenderable(leafRenderable);
+        }
     }
 
     /**
-     * Sets the value of the transitionsActive field.
+     * Stops or resumes drawing the leaf. A leaf that fell stays hidden until it grows back.
      *
-     * @param transitionsActive the new value for the transitionsActive field
+     * @param culled true to stop drawing the leaf
      */
-    public void setTransitionsActive(boolean transitionsActive) {
-        this.transitionsActive = transitionsActive;
+    public void setCulled(boolean culled) {
+        this.culled = culled;
+        renderer().setRenderable(culled || detached ? null : leafRenderable);
     }
 
 }
@@ -1,11 +1,14 @@
 package pepse.world;
 
-import danogl.GameObject;
 import danogl.collisions.GameObjectCollection;
-import danogl.gui.rendering.RectangleRenderable;
 import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
+import pepse.util.ColorPalette;
 import pepse.util.ColorSupplier;
+import pepse.util.ObjectPool;
+import pepse.util.PositionRandom;
+import pepse.world.chunks.Chunk;
+import pepse.world.chunks.ChunkBaker;
 
 import java.awt.*;
 import java.util.*;
@@ -15,29 +18,72 @@ public class Terrain {
     private static final int TERRAIN_DEPTH = 20;
     private static final Color BASE_GROUND_COLOR = new Color(212, 123, 74);
     public static final String GROUND_TAG = "ground";
+    private static final long COLOR_SALT = 1;
+    private static final int HEIGHT_CACHE_COLUMNS = 1024; // must be a power of two
+    private static final int EMPTY_SLOT = Integer.MIN_VALUE;
     private final float groundHeightAtX0;
     private final GameObjectCollection gameObjects;
     private final int groundLayer;
     private final Vector2 windowDimensions;
     private final int hillWidthFactor;
     private final float hillHeightFactor;
+    private final ObjectPool<Block> blockPool;
+    private final int seed;
+    private final ColorPalette groundPalette;
+    private final int[] cachedColumns;
+    private final float[] cachedHeights;
+    private boolean mergedGeometry;
+    private ChunkBaker baker;
 
 
     public Terrain(GameObjectCollection gameObjects,
                    int groundLayer,
                    Vector2 windowDimensions,
-                   int seed) {
+                   int seed,
+                   ObjectPool<Block> blockPool) {
         this.gameObjects = gameObjects;
+        this.blockPool = blockPool;
+        this.seed = seed;
+        this.groundPalette = ColorSupplier.palette(BASE_GROUND_COLOR);
         this.groundLayer = groundLayer;
         this.windowDimensions = windowDimensions;
         this.groundHeightAtX0 = (windowDimensions.y() * ((float) 9 / 10));// the lowest point of th ground
         Random random = new Random(Objects.hash(60, seed));
         hillWidthFactor = random.nextInt(20) + 80; // the randomly calculated width of hill
         hillHeightFactor = random.nextFloat() % 0.1f + 0.2f; // the randomly calculated height of hill
+        cachedColumns = new int[HEIGHT_CACHE_COLUMNS];
+        cachedHeights = new float[HEIGHT_CACHE_COLUMNS];
+        Arrays.fill(cachedColumns, EMPTY_SLOT);
+
+    }
 
 
+    /**
+     * Sets whether terrain is built as merged geometry: every run of neighbouring columns with the
+     * same height becomes one tall collider, drawn tile by tile, instead of TERRAIN_DEPTH blocks per column.
+     *
+     * @param mergedGeometry true to merge columns into single colliders
+     */
+    public void setMergedGeometry(boolean mergedGeometry) {
+        this.mergedGeometry = mergedGeometry;
     }
 
+    /**
+     * Sets the baker that rasterizes the terrain of a whole chunk into a single drawn block.
+     * When set, it takes precedence over merged geometry.
+     *
+     * @param baker the chunk baker, or null to build the terrain out of blocks
+     */
+    public void setBaker(ChunkBaker baker) {
+        this.baker = baker;
+    }
+
+    /**
+     * @return the palette of the ground tiles
+     */
+    public ColorPalette getGroundPalette() {
+        return groundPalette;
+    }
 
     /**
      * the mathematical function that calculates terrain Y coordinates at every X given
@@ -54,61 +100,249 @@ public class Terrain {
     }
 
     /**
-     * returns the height at every given x coordinate (y coordinate)
+     * returns the height at every given x coordinate (y coordinate).
+     * The height is taken at the start of the block column containing x, and served from a ring buffer
+     * of column heights covering the loaded range, so repeated queries neither allocate nor evaluate the
+     * terrain function. Must be called from the game thread.
      *
      * @param x x coordinate
      * @return the y of the current function for given x
      */
     public float groundHeightAt(float x) {
-        return terrainFunc(x);
+        int column = (int) Math.floor(x / Block.SIZE);
+        int slot = column & (HEIGHT_CACHE_COLUMNS - 1);
+        if (cachedColumns[slot] != column) {
+            cachedColumns[slot] = column;
+            cachedHeights[slot] = terrainFunc(column * Block.SIZE);
+        }
+        return cachedHeights[slot];
     }
 
     /**
-     * Creates a column of blocks at the specified x coordinate.
+     * Returns the y coordinate of the ground surface in the column containing x.
+     * Served from the height cache, must be called from the game thread.
      *
-     * @param curXCord the x coordinate at which to create the column of blocks
+     * @param x x coordinate
+     * @return the top y coordinate of the column
      */
-    private void createBlockColumn(float curXCord) {
-        float height = ((int) terrainFunc(curXCord) / Block.SIZE) * Block.SIZE;
+    public float columnTopAt(float x) {
+        return columnTop(groundHeightAt(x));
+    }
+
+    /**
+     * Returns the y coordinate of the top block of a column of the given ground height.
+     *
+     * @param groundHeight the ground height of the column
+     * @return the top y coordinate of the column
+     */
+    static float columnTop(float groundHeight) {
+        return ((int) groundHeight / Block.SIZE) * Block.SIZE;
+    }
+
+    /**
+     * Copies the column heights of a described strip into the height cache in one batch.
+     * Must be called from the game thread.
+     *
+     * @param descriptor the terrain strip
+     */
+    public void cacheHeights(TerrainDescriptor descriptor) {
+        int firstColumn = (int) Math.floor(descriptor.getMinX() / Block.SIZE);
+        for (int column = 0; column < descriptor.getColumns(); column++) {
+            int slot = (firstColumn + column) & (HEIGHT_CACHE_COLUMNS - 1);
+            cachedColumns[slot] = firstColumn + column;
+            cachedHeights[slot] = descriptor.getColumnHeight(column);
+        }
+    }
+
+    /**
+     * Returns the generator for the block colors of a column, determined only by the seed and the column.
+     *
+     * @param curXCord x coordinate of the column
+     * @return a generator private to this column
+     */
+    private SplittableRandom columnRandom(float curXCord) {
+        return PositionRandom.at(seed, (long) Math.floor(curXCord / Block.SIZE), COLOR_SALT);
+    }
+
+    /**
+     * Creates a single merged block covering columns of the same height, TERRAIN_DEPTH tiles deep.
+     *
+     * @param descriptor  the terrain strip being materialized
+     * @param firstColumn offset of the first column of the run in the strip
+     * @param columns     number of columns in the run
+     * @param chunk       the chunk that owns the created block
+     */
+    private void createMergedColumns(TerrainDescriptor descriptor, int firstColumn, int columns, Chunk chunk) {
+        Block block = blockPool.acquire();
+        block.reset(new Vector2(descriptor.getColumnX(firstColumn), descriptor.getColumnTop(firstColumn)),
+                new Vector2(columns * Block.SIZE, TERRAIN_DEPTH * Block.SIZE),
+                new TiledRenderable(descriptor.getPalette(), descriptor.getTileColors(),
+                        firstColumn * TERRAIN_DEPTH, columns, TERRAIN_DEPTH), GROUND_TAG);
+        gameObjects.addGameObject(block, groundLayer);
+        chunk.addTerrainBlock(block);
+    }
+
+    /**
+     * Creates a single block drawing the baked terrain of a chunk.
+     *
+     * @param descriptor the terrain strip of the chunk
+     * @param chunk      the chunk that owns the created block
+     */
+    private void createBakedChunk(TerrainDescriptor descriptor, Chunk chunk) {
+        ChunkBaker.Bake bake = baker.bake(chunk, descriptor);
+        Block block = blockPool.acquire();
+        block.reset(bake.getTopLeftCorner(), bake.getDimensions(), bake.getRenderable(), GROUND_TAG);
+        gameObjects.addGameObject(block, groundLayer);
+        chunk.addTerrainBlock(block);
+    }
+
+    /**
+     * Queues merged colliders for the columns of a strip, one per run of equal heights.
+     *
+     * @param descriptor the terrain strip to materialize
+     * @param chunk      the chunk that owns the created blocks
+     */
+    private void createMergedRange(TerrainDescriptor descriptor, Chunk chunk) {
+        int runStart = 0;
+        for (int column = 1; column < descriptor.getColumns(); column++) {
+            if (descriptor.getColumnTop(column) != descriptor.getColumnTop(runStart)) {
+                enqueueMergedColumns(descriptor, runStart, column - runStart, chunk);
+                runStart = column;
+            }
+        }
+        enqueueMergedColumns(descriptor, runStart, descriptor.getColumns() - runStart, chunk);
+    }
+
+    /**
+     * Queues the creation of a merged block in the chunk's work.
+     *
+     * @param descriptor  the terrain strip being materialized
+     * @param firstColumn offset of the first column of the run in the strip
+     * @param columns     number of columns in the run
+     * @param chunk       the chunk that owns the created block
+     */
+    private void enqueueMergedColumns(TerrainDescriptor descriptor, int firstColumn, int columns, Chunk chunk) {
+        chunk.enqueueWork(() -> createMergedColumns(descriptor, firstColumn, columns, chunk));
+    }
+
+    /**
+     * Creates a column of blocks of a strip.
+     *
+     * @param descriptor the terrain strip being materialized
+     * @param column     offset of the column in the strip
+     * @param chunk      the chunk that owns the created blocks
+     */
+    private void createBlockColumn(TerrainDescriptor descriptor, int column, Chunk chunk) {
+        float curXCord = descriptor.getColumnX(column);
+        float height = descriptor.getColumnTop(column);
+        int exposedRows = descriptor.getExposedRows(column);
         int i = 0;
-        while (i < TERRAIN_DEPTH) {
-            Renderable blockImg = new RectangleRenderable(ColorSupplier.approximateColor(BASE_GROUND_COLOR));
-            GameObject block = new Block(new Vector2(curXCord, height), blockImg);
-            block.setTag(GROUND_TAG);
+        while (i < exposedRows) {
+            Renderable blockImg = descriptor.getPalette().getRenderable(descriptor.getTileColor(column, i));
+            Block block = blockPool.acquire();
+            block.reset(new Vector2(curXCord, height), Vector2.ONES.mult(Block.SIZE), blockImg, GROUND_TAG);
             gameObjects.addGameObject(block, groundLayer);
+            chunk.addTerrainBlock(block);
             height += Block.SIZE;
             i++;
         }
+        if (exposedRows < TERRAIN_DEPTH) {
+            // the buried tiles are only ever drawn, so they share a single block
+            Block block = blockPool.acquire();
+            block.reset(new Vector2(curXCord, height),
+                    new Vector2(Block.SIZE, (TERRAIN_DEPTH - exposedRows) * Block.SIZE),
+                    new TiledRenderable(descriptor.getPalette(), descriptor.getTileColors(),
+                            column * TERRAIN_DEPTH + exposedRows, 1, TERRAIN_DEPTH - exposedRows), GROUND_TAG);
+            gameObjects.addGameObject(block, groundLayer);
+            chunk.addTerrainBlock(block);
+        }
     }
 
     /**
      * This function rounds up a given range to a block coordinate range, using the size of BLOCK.SIZE().
-     * The function always starts calculations from 0 to ensure a uniform result every time it is called.
+     * The result is aligned to multiples of Block.SIZE from 0, so neighbouring ranges never share a column.
      *
      * @param minX int of given range minimum
      * @param maxX int of given range maximum
      * @return Vector2 object which contains final building range (x - minimum bound, y - maximum bound)
      */
     private Vector2 calcBuildRange(int minX, int maxX) {
-        float min = 0f, max = Block.SIZE;
-        if (minX > min) {
-            while (minX > min)
-                min += Block.SIZE;
-            min -= Block.SIZE;
-        } else if (minX < min)
-            while (minX < min)
-                min -= Block.SIZE;
-        if (max > maxX) {
-            while (max > maxX)
-                max -= Block.SIZE;
-            max += Block.SIZE;
-        } else if (max < maxX)
-            while (max < maxX)
-                max += Block.SIZE;
-
+        float min = (float) Math.floor(minX / Block.SIZE) * Block.SIZE;
+        float max = (float) Math.ceil(maxX / Block.SIZE) * Block.SIZE;
         return new Vector2(min, max);
     }
 
+    /**
+     * Counts the tiles at the top of a column that can be seen: the surface tile, and every tile
+     * above the surface of the lower of its two neighbours.
+     *
+     * @param curXCord x coordinate of the column
+     * @param height   ground height of the column
+     * @return the number of exposed tiles
+     */
+    private byte exposedRows(float curXCord, float height) {
+        float top = columnTop(height);
+        float neighbourTop = Math.max(columnTop(terrainFunc(curXCord - Block.SIZE)),
+                columnTop(terrainFunc(curXCord + Block.SIZE)));
+        int rows = (int) Math.ceil((neighbourTop - top) / Block.SIZE);
+        return (byte) Math.max(1, Math.min(TERRAIN_DEPTH, rows));
+    }
+
+    /**
+     * Computes the column heights, exposed tiles and tile colors of the terrain covering the given range.
+     * Creates no game objects and only reads immutable state (not the height cache),
+     * so it is safe to call from any thread.
+     *
+     * @param minX minimum x coordinates to fill from
+     * @param maxX maximum x coordinates to reach
+     * @return the description of the terrain strip
+     */
+    public TerrainDescriptor describe(int minX, int maxX) {
+        Vector2 range = calcBuildRange(minX, maxX);
+        int columns = (int) ((range.y() - range.x()) / Block.SIZE);
+        float[] columnHeights = new float[columns];
+        byte[] tileColors = new byte[columns * TERRAIN_DEPTH];
+        byte[] exposedRows = new byte[columns];
+        for (int column = 0; column < columns; column++) {
+            float curXCord = range.x() + column * Block.SIZE;
+            columnHeights[column] = terrainFunc(curXCord);
+            exposedRows[column] = exposedRows(curXCord, columnHeights[column]);
+            SplittableRandom random = columnRandom(curXCord);
+            for (int row = 0; row < TERRAIN_DEPTH; row++) {
+                tileColors[column * TERRAIN_DEPTH + row] = groundPalette.pickIndex(random);
+            }
+        }
+        return new TerrainDescriptor(range.x(), columnHeights, groundPalette, tileColors, exposedRows,
+                TERRAIN_DEPTH);
+    }
+
+    /**
+     * Queues the creation of the ground blocks of a described terrain strip in the chunk's work,
+     * one unit per column or merged run, or a single unit when terrain is baked.
+     * Only exposed tiles get a block of their own.
+     * The work must be run on the game thread.
+     *
+     * @param descriptor the terrain strip to materialize
+     * @param chunk      the chunk that owns the created blocks
+     */
+    public void materialize(TerrainDescriptor descriptor, Chunk chunk) {
+        if (descriptor.getColumns() == 0) {
+            return;
+        }
+        if (baker != null) {
+            chunk.enqueueWork(() -> createBakedChunk(descriptor, chunk));
+            return;
+        }
+        if (mergedGeometry) {
+            createMergedRange(descriptor, chunk);
+            return;
+        }
+        for (int column = 0; column < descriptor.getColumns(); column++) {
+            int curColumn = column;
+            chunk.enqueueWork(() -> createBlockColumn(descriptor, curColumn, chunk));
+        }
+    }
+
     /**
      * generates ground blocks terrain and adds them to game
      * starts from x = 0 and keeps filling until all the area between
@@ -116,11 +350,12 @@ public class Terrain {
      *
      * @param minX minimum x coordinates to fill from
      * @param maxX maximum x coordinates to reach
+     * @param chunk the chunk that owns the created blocks
      */
-    public void createInRange(int minX, int maxX) {
-        Vector2 range = calcBuildRange(minX, maxX);
-        for (float runner = range.x(); runner < range.y(); runner += Block.SIZE) {
-            createBlockColumn(runner);
-        }
+    public void createInRange(int minX, int maxX, Chunk chunk) {
+        TerrainDescriptor descriptor = describe(minX, maxX);
+        cacheHeights(descriptor);
+        materialize(descriptor, chunk);
+        chunk.runAllWork();
     }
 }
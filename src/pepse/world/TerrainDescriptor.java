@@ -0,0 +1,124 @@
+package pepse.world;
+
+import pepse.util.ColorPalette;
+
+/**
+ * Pure description of a strip of terrain columns: where each column starts, how many of its tiles are
+ * exposed, and the palette color of every tile. Holds no game objects, so it can be computed away from
+ * the game thread and materialized later. This is the chunk's source of truth for its terrain: game objects
+ * are only created from it while the chunk is near the window, and only for exposed tiles.
+ */
+public class TerrainDescriptor {
+
+    private final float minX;
+    private final float[] columnHeights;
+    private final ColorPalette palette;
+    private final byte[] tileColors;
+    private final byte[] exposedRows;
+    private final int depth;
+
+    /**
+     * @param minX          x coordinate of the first column, aligned to Block.SIZE
+     * @param columnHeights ground height of every column
+     * @param palette       the palette of the tile colors
+     * @param tileColors    tile palette indices, column by column (tileColors[column * depth + row])
+     * @param exposedRows   number of tiles at the top of every column that can be seen from the air
+     * @param depth         number of tiles in each column
+     */
+    public TerrainDescriptor(float minX, float[] columnHeights, ColorPalette palette, byte[] tileColors,
+                             byte[] exposedRows, int depth) {
+        this.minX = minX;
+        this.columnHeights = columnHeights;
+        this.palette = palette;
+        this.tileColors = tileColors;
+        this.exposedRows = exposedRows;
+        this.depth = depth;
+    }
+
+    /**
+     * @return x coordinate of the first column
+     */
+    public float getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return number of columns in the strip
+     */
+    public int getColumns() {
+        return columnHeights.length;
+    }
+
+    /**
+     * @param column column offset within the strip
+     * @return x coordinate of the column
+     */
+    public float getColumnX(int column) {
+        return minX + column * Block.SIZE;
+    }
+
+    /**
+     * @param column column offset within the strip
+     * @return ground height of the column
+     */
+    public float getColumnHeight(int column) {
+        return columnHeights[column];
+    }
+
+    /**
+     * @param x x coordinate within the strip
+     * @return ground height of the column containing x
+     */
+    public float getGroundHeightAt(float x) {
+        return columnHeights[(int) Math.floor((x - minX) / Block.SIZE)];
+    }
+
+    /**
+     * @param column column offset within the strip
+     * @return top y coordinate of the column
+     */
+    public float getColumnTop(int column) {
+        return Terrain.columnTop(columnHeights[column]);
+    }
+
+    /**
+     * @param column column offset within the strip
+     * @param row    tile row, 0 being the surface
+     * @return the palette index of the tile color
+     */
+    public int getTileColor(int column, int row) {
+        return tileColors[column * depth + row];
+    }
+
+    /**
+     * @return the palette of the tile colors
+     */
+    public ColorPalette getPalette() {
+        return palette;
+    }
+
+    /**
+     * @return all tile palette indices, column by column (getTileColors()[column * depth + row])
+     */
+    public byte[] getTileColors() {
+        return tileColors;
+    }
+
+    /**
+     * @return number of tiles in each column
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns how many tiles at the top of a column are exposed: the surface tile, and the tiles
+     * whose side faces a lower neighbouring column. The tiles below them are buried.
+     *
+     * @param column column offset within the strip
+     * @return number of exposed tiles, between 1 and the depth
+     */
+    public int getExposedRows(int column) {
+        return exposedRows[column];
+    }
+}
@@ -0,0 +1,59 @@
+package pepse.world;
+
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.util.ColorPalette;
+
+import java.awt.*;
+
+/**
+ * Draws a grid of solid colored tiles stretched over the dimensions of its object.
+ * Lets a single merged collider keep the look of the separate blocks it replaces.
+ * Tile colors are palette indices read straight from a shared array, so no per-tile colors are allocated.
+ */
+public class TiledRenderable implements Renderable {
+
+    private final ColorPalette palette;
+    private final byte[] colorIndices;
+    private final int offset;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * @param palette      the palette the tile colors come from
+     * @param colorIndices tile color indices, column by column (colorIndices[offset + column * rows + row])
+     * @param offset       index of the first tile in colorIndices
+     * @param columns      number of tile columns
+     * @param rows         number of tile rows
+     */
+    public TiledRenderable(ColorPalette palette, byte[] colorIndices, int offset, int columns, int rows) {
+        this.palette = palette;
+        this.colorIndices = colorIndices;
+        this.offset = offset;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    @Override
+    public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                       double degreesCounterClockwise, boolean isFlippedHorizontally,
+                       boolean isFlippedVertically, double opaqueness) {
+        float tileWidth = dimensions.x() / columns;
+        float tileHeight = dimensions.y() / rows;
+        Composite oldComposite = g.getComposite();
+        if (opaqueness < 1) {
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) opaqueness));
+        }
+        for (int column = 0; column < columns; column++) {
+            int x = Math.round(topLeftCorner.x() + column * tileWidth);
+            int width = Math.round(topLeftCorner.x() + (column + 1) * tileWidth) - x;
+            for (int row = 0; row < rows; row++) {
+                int y = Math.round(topLeftCorner.y() + row * tileHeight);
+                int height = Math.round(topLeftCorner.y() + (row + 1) * tileHeight) - y;
+                g.setColor(palette.getColor(colorIndices[offset + column * rows + row]));
+                g.fillRect(x, y, width, height);
+            }
+        }
+        g.setComposite(oldComposite);
+    }
+}
@@ -0,0 +1,115 @@
+package pepse.world.chunks;
+
+import java.util.ArrayDeque;
+
+/**
+ * Runs the queued build and removal work of chunks in slices, under a per-frame time budget,
+ * so a newly needed strip of world is spread over several frames instead of one long one.
+ * Chunks are served in the order they were scheduled. Each chunk carries a flag telling whether it is
+ * queued, so scheduling and flushing never search the queue; a flushed chunk stays queued, without work,
+ * until the scheduler reaches it and drops it.
+ */
+public class BuildScheduler {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final ArrayDeque<Chunk> busyChunks;
+    private long budgetNanos;
+    private long flushedNanos;
+    private int flushedTasks;
+    private long lastFrameNanos;
+    private int lastFrameTasks;
+
+    /**
+     * @param budgetMillis time the scheduler may spend on queued work per frame, in milliseconds
+     */
+    public BuildScheduler(float budgetMillis) {
+        busyChunks = new ArrayDeque<>();
+        setBudgetMillis(budgetMillis);
+    }
+
+    /**
+     * Registers a chunk whose queued work should be run.
+     *
+     * @param chunk the chunk with pending work
+     */
+    public void schedule(Chunk chunk) {
+        if (!chunk.isScheduled()) {
+            chunk.setScheduled(true);
+            busyChunks.add(chunk);
+        }
+    }
+
+    /**
+     * Runs all the queued work of a chunk right away, regardless of the budget.
+     * Used for chunks that are already on screen.
+     *
+     * @param chunk the chunk to complete
+     */
+    public void flush(Chunk chunk) {
+        long start = System.nanoTime();
+        while (chunk.runNextWork()) {
+            flushedTasks++;
+        }
+        flushedNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Runs queued work until the frame budget is used up or no work is left.
+     * Should be called once per frame.
+     */
+    public void runFrame() {
+        long start = System.nanoTime();
+        int tasks = 0;
+        while (!busyChunks.isEmpty() && System.nanoTime() - start < budgetNanos) {
+            if (busyChunks.peek().runNextWork()) {
+                tasks++;
+            } else {
+                busyChunks.poll().setScheduled(false);
+            }
+        }
+        lastFrameNanos = System.nanoTime() - start + flushedNanos;
+        lastFrameTasks = tasks + flushedTasks;
+        flushedNanos = 0;
+        flushedTasks = 0;
+    }
+
+    /**
+     * @param budgetMillis time the scheduler may spend on queued work per frame, in milliseconds
+     */
+    public void setBudgetMillis(float budgetMillis) {
+        budgetNanos = (long) (budgetMillis * NANOS_PER_MILLI);
+    }
+
+    /**
+     * @return time the scheduler may spend on queued work per frame, in milliseconds
+     */
+    public float getBudgetMillis() {
+        return (float) budgetNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return number of queued units of work not run yet
+     */
+    public int getBacklog() {
+        int backlog = 0;
+        for (Chunk chunk : busyChunks) {
+            backlog += chunk.getPendingWork();
+        }
+        return backlog;
+    }
+
+    /**
+     * @return time spent on queued work during the last frame, including flushed chunks, in nanoseconds
+     */
+    public long getLastFrameNanos() {
+        return lastFrameNanos;
+    }
+
+    /**
+     * @return number of units of work run during the last frame
+     */
+    public int getLastFrameTasks() {
+        return lastFrameTasks;
+    }
+}
@@ -0,0 +1,302 @@
+package pepse.world.chunks;
+
+import pepse.world.Block;
+import pepse.world.LeafBlock;
+import pepse.world.TerrainDescriptor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed-width vertical slice of the world, identified by an integer index.
+ * Chunk i covers the x range [i * WIDTH, (i + 1) * WIDTH) and owns every terrain block,
+ * trunk block and leaf that was generated for it, so it can be unloaded without
+ * scanning the rest of the game objects.
+ * The chunk's terrain is kept as a compact tile description; its blocks only exist while the chunk
+ * is near the window.
+ * Building and clearing a chunk is queued as small units of work, run by a BuildScheduler.
+ * A built chunk far from the window can be put to sleep: its trunks and leaves leave the game objects,
+ * so they are neither updated nor drawn, while the chunk keeps them to put back when it wakes.
+ */
+public class Chunk {
+
+    public static final int COLUMNS = 16;
+    public static final float WIDTH = COLUMNS * Block.SIZE;
+
+    private final int index;
+    private final List<Block> terrainBlocks;
+    private final List<Block> trunkBlocks;
+    private final List<LeafBlock> leaves;
+    private final ArrayDeque<Runnable> pendingWork;
+    private ChunkDescriptor descriptor;
+    private boolean terrainMaterialized;
+    private long workNanos;
+    private boolean visible;
+    private boolean asleep;
+    private boolean culled;
+    private boolean scheduled;
+
+    /**
+     * Creates an empty chunk.
+     *
+     * @param index the chunk index
+     */
+    public Chunk(int index) {
+        this.index = index;
+        terrainBlocks = new ArrayList<>();
+        trunkBlocks = new ArrayList<>();
+        leaves = new ArrayList<>();
+        pendingWork = new ArrayDeque<>();
+    }
+
+    /**
+     * Returns the index of the chunk containing the given x coordinate.
+     *
+     * @param x x coordinate in world space
+     * @return the chunk index
+     */
+    public static int indexAt(float x) {
+        return (int) Math.floor(x / WIDTH);
+    }
+
+    /**
+     * @return the index of this chunk
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the left (inclusive) x coordinate of this chunk
+     */
+    public int getMinX() {
+        return (int) (index * WIDTH);
+    }
+
+    /**
+     * @return the right (exclusive) x coordinate of this chunk
+     */
+    public int getMaxX() {
+        return (int) ((index + 1) * WIDTH);
+    }
+
+    /**
+     * Sets the description this chunk was built from: its terrain tiles and tree layout.
+     *
+     * @param descriptor the description of the chunk
+     */
+    public void setDescriptor(ChunkDescriptor descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    /**
+     * @return the description this chunk was built from
+     */
+    public ChunkDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * @return the tile description of this chunk's terrain
+     */
+    public TerrainDescriptor getTerrain() {
+        return descriptor.getTerrain();
+    }
+
+    /**
+     * @return true if the terrain blocks of this chunk were created, or are queued to be
+     */
+    public boolean isTerrainMaterialized() {
+        return terrainMaterialized;
+    }
+
+    /**
+     * @param terrainMaterialized whether the terrain blocks of this chunk exist, or are queued to
+     */
+    public void setTerrainMaterialized(boolean terrainMaterialized) {
+        this.terrainMaterialized = terrainMaterialized;
+    }
+
+    /**
+     * Registers a terrain block as owned by this chunk.
+     *
+     * @param block the terrain block
+     */
+    public void addTerrainBlock(Block block) {
+        terrainBlocks.add(block);
+    }
+
+    /**
+     * Registers a trunk block as owned by this chunk.
+     *
+     * @param block the trunk block
+     */
+    public void addTrunkBlock(Block block) {
+        trunkBlocks.add(block);
+    }
+
+    /**
+     * Registers a leaf as owned by this chunk.
+     *
+     * @param leaf the leaf block
+     */
+    public void addLeaf(LeafBlock leaf) {
+        leaves.add(leaf);
+    }
+
+    /**
+     * @return the terrain blocks of this chunk
+     */
+    public List<Block> getTerrainBlocks() {
+        return terrainBlocks;
+    }
+
+    /**
+     * @return the trunk blocks of this chunk
+     */
+    public List<Block> getTrunkBlocks() {
+        return trunkBlocks;
+    }
+
+    /**
+     * @return the leaves of this chunk
+     */
+    public List<LeafBlock> getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * Marks whether the chunk overlaps the window. The wind only sways the leaves of visible chunks.
+     *
+     * @param visible true if the chunk overlaps the window
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    /**
+     * @return true if the chunk overlaps the window
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * @return true if the trunks and leaves of this chunk are out of the game objects
+     */
+    public boolean isAsleep() {
+        return asleep;
+    }
+
+    /**
+     * @param asleep whether the trunks and leaves of this chunk are out of the game objects
+     */
+    public void setAsleep(boolean asleep) {
+        this.asleep = asleep;
+    }
+
+    /**
+     * Stops or resumes drawing every object of the chunk at once.
+     *
+     * @param culled true if the chunk is out of view and its objects should not be drawn
+     */
+    public void setCulled(boolean culled) {
+        if (this.culled == culled) {
+            return;
+        }
+        this.culled = culled;
+        for (Block block : terrainBlocks) {
+            block.setCulled(culled);
+        }
+        for (Block block : trunkBlocks) {
+            block.setCulled(culled);
+        }
+        for (LeafBlock leaf : leaves) {
+            leaf.setCulled(culled);
+        }
+    }
+
+    /**
+     * @return true if the objects of the chunk are not drawn
+     */
+    public boolean isCulled() {
+        return culled;
+    }
+
+    /**
+     * @return true if the chunk is in the queue of a BuildScheduler
+     */
+    boolean isScheduled() {
+        return scheduled;
+    }
+
+    /**
+     * @param scheduled whether the chunk is in the queue of a BuildScheduler
+     */
+    void setScheduled(boolean scheduled) {
+        this.scheduled = scheduled;
+    }
+
+    /**
+     * Queues a unit of work (creating a column, a trunk, a leaf, removing an object...) for this chunk.
+     *
+     * @param task the work to run
+     */
+    public void enqueueWork(Runnable task) {
+        pendingWork.add(task);
+    }
+
+    /**
+     * Runs the oldest queued unit of work, if any.
+     *
+     * @return true if a unit of work was run
+     */
+    public boolean runNextWork() {
+        Runnable task = pendingWork.poll();
+        if (task == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        task.run();
+        workNanos += System.nanoTime() - start;
+        return true;
+    }
+
+    /**
+     * Runs all the queued work of this chunk.
+     */
+    public void runAllWork() {
+        while (runNextWork()) {
+            // keep going until the queue is empty
+        }
+    }
+
+    /**
+     * Drops all queued work, used when the chunk is unloaded before it finished building.
+     */
+    public void clearWork() {
+        pendingWork.clear();
+    }
+
+    /**
+     * @return the number of queued units of work
+     */
+    public int getPendingWork() {
+        return pendingWork.size();
+    }
+
+    /**
+     * @return total time spent running the queued work of this chunk, in nanoseconds
+     */
+    public long getWorkNanos() {
+        return workNanos;
+    }
+
+    /**
+     * @return the number of game objects owned by this chunk
+     */
+    public int getObjectCount() {
+        return terrainBlocks.size() + trunkBlocks.size() + leaves.size();
+    }
+}
@@ -0,0 +1,201 @@
+package pepse.world.chunks;
+
+import danogl.util.Vector2;
+import pepse.util.ColorPalette;
+import pepse.world.BakedRenderable;
+import pepse.world.Block;
+import pepse.world.TerrainDescriptor;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Rasterizes the terrain of a chunk once into a single image, so it is drawn with one call
+ * instead of one per tile. Columns lie on the horizontal tile grid, so the image holds a single pixel
+ * per column and is stretched by Block.SIZE horizontally when drawn; pixels are palette indices,
+ * one byte each. A chunk bakes into a few kilobytes.
+ * The terrain of a chunk index only depends on the seed, so a bake stays valid for as long as it is kept.
+ * Bakes are kept per chunk index in a least-recently-used cache bounded by their total size in bytes.
+ */
+public class ChunkBaker {
+
+    private final long budgetBytes;
+    private final LinkedHashMap<Integer, Bake> bakes;
+    private ColorPalette modelPalette;
+    private IndexColorModel colorModel;
+    private long sizeBytes;
+    private int bakeCount;
+    private int hits;
+
+    /**
+     * @param budgetBytes maximal total size of the cached bake images, in bytes
+     */
+    public ChunkBaker(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        bakes = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the bake of a chunk's terrain, rasterizing it only if it is not cached.
+     * Must be called from the game thread.
+     *
+     * @param chunk   the chunk
+     * @param terrain the terrain strip of the chunk
+     * @return the bake of the chunk's terrain
+     */
+    public Bake bake(Chunk chunk, TerrainDescriptor terrain) {
+        Bake bake = bakes.get(chunk.getIndex());
+        if (bake != null) {
+            hits++;
+            return bake;
+        }
+        bake = rasterize(terrain);
+        bakes.put(chunk.getIndex(), bake);
+        sizeBytes += bake.getSizeBytes();
+        bakeCount++;
+        Iterator<Bake> eldest = bakes.values().iterator();
+        while (sizeBytes > budgetBytes && bakes.size() > 1) {
+            sizeBytes -= eldest.next().getSizeBytes();
+            eldest.remove();
+        }
+        return bake;
+    }
+
+    /**
+     * Draws every tile of a terrain strip into an image one pixel wide per column and just tall enough
+     * to hold its columns. Pixels above a column's top are transparent.
+     *
+     * @param terrain the terrain strip
+     * @return the bake
+     */
+    private Bake rasterize(TerrainDescriptor terrain) {
+        float tileHeight = terrain.getDepth() * Block.SIZE;
+        float top = Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (int column = 0; column < terrain.getColumns(); column++) {
+            top = Math.min(top, terrain.getColumnTop(column));
+            bottom = Math.max(bottom, terrain.getColumnTop(column) + tileHeight);
+        }
+        int width = Math.max(1, terrain.getColumns());
+        int height = Math.max(1, (int) Math.ceil(bottom - top));
+        IndexColorModel model = colorModel(terrain.getPalette());
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, model);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, (byte) model.getTransparentPixel());
+        int size = Math.round(Block.SIZE);
+        for (int column = 0; column < terrain.getColumns(); column++) {
+            int y = Math.round(terrain.getColumnTop(column) - top);
+            for (int row = 0; row < terrain.getDepth(); row++) {
+                byte tile = (byte) terrain.getTileColor(column, row);
+                int rowEnd = Math.min(height, y + (row + 1) * size);
+                for (int pixel = y + row * size; pixel < rowEnd; pixel++) {
+                    pixels[pixel * width + column] = tile;
+                }
+            }
+        }
+        return new Bake(new Vector2(terrain.getMinX(), top),
+                new Vector2(width * Block.SIZE, height), new BakedRenderable(image));
+    }
+
+    /**
+     * Returns the color model mapping palette indices to colors, with one extra transparent index.
+     * Built once, since every chunk shares the ground palette.
+     *
+     * @param palette the palette of the terrain tiles
+     * @return the color model of the palette
+     */
+    private IndexColorModel colorModel(ColorPalette palette) {
+        if (palette != modelPalette) {
+            int size = palette.size() + 1;
+            byte[] reds = new byte[size];
+            byte[] greens = new byte[size];
+            byte[] blues = new byte[size];
+            for (int i = 0; i < palette.size(); i++) {
+                Color color = palette.getColor(i);
+                reds[i] = (byte) color.getRed();
+                greens[i] = (byte) color.getGreen();
+                blues[i] = (byte) color.getBlue();
+            }
+            colorModel = new IndexColorModel(8, size, reds, greens, blues, palette.size());
+            modelPalette = palette;
+        }
+        return colorModel;
+    }
+
+    /**
+     * @return number of chunks rasterized so far
+     */
+    public int getBakeCount() {
+        return bakeCount;
+    }
+
+    /**
+     * @return number of bakes served from the cache
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of bakes currently cached
+     */
+    public int size() {
+        return bakes.size();
+    }
+
+    /**
+     * @return total size of the cached bake images, in bytes
+     */
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * The rasterized terrain of one chunk, and where it is drawn.
+     */
+    public static class Bake {
+
+        private final Vector2 topLeftCorner;
+        private final Vector2 dimensions;
+        private final BakedRenderable renderable;
+
+        private Bake(Vector2 topLeftCorner, Vector2 dimensions, BakedRenderable renderable) {
+            this.topLeftCorner = topLeftCorner;
+            this.dimensions = dimensions;
+            this.renderable = renderable;
+        }
+
+        /**
+         * @return the top left corner of the image in world space
+         */
+        public Vector2 getTopLeftCorner() {
+            return topLeftCorner;
+        }
+
+        /**
+         * @return the dimensions of the image in world space
+         */
+        public Vector2 getDimensions() {
+            return dimensions;
+        }
+
+        /**
+         * @return size of the image in memory, in bytes
+         */
+        public long getSizeBytes() {
+            return renderable.getImage().getRaster().getDataBuffer().getSize();
+        }
+
+        /**
+         * @return the renderable drawing the image
+         */
+        public BakedRenderable getRenderable() {
+            return renderable;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package pepse.world.chunks;
+
+import danogl.util.Vector2;
+import pepse.util.ColorPalette;
+import pepse.world.Block;
+import pepse.world.TerrainDescriptor;
+import pepse.world.trees.TreeDescriptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps unloaded chunks hibernated in a compact serialized form, so walking back over ground that was
+ * just left restores it instead of generating it again. A hibernated chunk holds its column heights,
+ * exposed rows and tile palette indices, and the layout of its trees and leaves, in a few hundred bytes.
+ * Chunks are evicted least recently used first once the cache grows over its byte budget.
+ * A hibernated chunk is only restored at the tree and leaf densities it was generated at: a chunk
+ * generated at other densities is not the chunk the seed yields now, and is generated again.
+ */
+public class ChunkCache {
+
+    private final long budgetBytes;
+    private final ColorPalette groundPalette;
+    private final LinkedHashMap<Integer, byte[]> hibernated;
+    private long sizeBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param budgetBytes   maximal total size of the hibernated chunks, in bytes
+     * @param groundPalette the palette of the terrain tiles, restored with every chunk
+     */
+    public ChunkCache(long budgetBytes, ColorPalette groundPalette) {
+        this.budgetBytes = budgetBytes;
+        this.groundPalette = groundPalette;
+        hibernated = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Hibernates a chunk, replacing any older copy, and evicts the least recently used chunks
+     * while the cache is over budget.
+     *
+     * @param descriptor the description of the chunk
+     */
+    public void put(ChunkDescriptor descriptor) {
+        byte[] data = encode(descriptor);
+        byte[] old = hibernated.put(descriptor.getIndex(), data);
+        sizeBytes += data.length - (old == null ? 0 : old.length);
+        Iterator<Map.Entry<Integer, byte[]>> eldest = hibernated.entrySet().iterator();
+        while (sizeBytes > budgetBytes && eldest.hasNext()) {
+            sizeBytes -= eldest.next().getValue().length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Restores a hibernated chunk. A restore is counted as a hit; a chunk that is not found is not
+     * counted here, but by recordMiss once it is actually sent to the generator.
+     * A copy hibernated at other densities is dropped.
+     *
+     * @param index               the chunk index
+     * @param treePlantPercentage the current tree density, out of 100
+     * @param leafPlantPercentage the current leaf density, out of 10
+     * @return the description of the chunk, or null if it is not in the cache at these densities
+     */
+    public ChunkDescriptor get(int index, int treePlantPercentage, int leafPlantPercentage) {
+        byte[] data = hibernated.get(index);
+        if (data == null) {
+            return null;
+        }
+        if (!matches(data, treePlantPercentage, leafPlantPercentage)) {
+            hibernated.remove(index);
+            sizeBytes -= data.length;
+            return null;
+        }
+        hits++;
+        return decode(index, data);
+    }
+
+    /**
+     * Counts a chunk that was not hibernated and had to be generated.
+     */
+    public void recordMiss() {
+        misses++;
+    }
+
+    /**
+     * @param index               the chunk index
+     * @param treePlantPercentage the current tree density, out of 100
+     * @param leafPlantPercentage the current leaf density, out of 10
+     * @return true if the chunk is hibernated at these densities
+     */
+    public boolean contains(int index, int treePlantPercentage, int leafPlantPercentage) {
+        byte[] data = hibernated.get(index);
+        return data != null && matches(data, treePlantPercentage, leafPlantPercentage);
+    }
+
+    /**
+     * @param data                a serialized chunk, which starts with the densities it was generated at
+     * @param treePlantPercentage a tree density, out of 100
+     * @param leafPlantPercentage a leaf density, out of 10
+     * @return true if the chunk was generated at the given densities
+     */
+    private static boolean matches(byte[] data, int treePlantPercentage, int leafPlantPercentage) {
+        return data[0] == treePlantPercentage && data[1] == leafPlantPercentage;
+    }
+
+    /**
+     * Serializes a chunk description.
+     *
+     * @param descriptor the description of the chunk
+     * @return the serialized chunk
+     */
+    private static byte[] encode(ChunkDescriptor descriptor) {
+        TerrainDescriptor terrain = descriptor.getTerrain();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(descriptor.getTreePlantPercentage());
+            out.writeByte(descriptor.getLeafPlantPercentage());
+            out.writeFloat(terrain.getMinX());
+            out.writeShort(terrain.getColumns());
+            out.writeByte(terrain.getDepth());
+            for (int column = 0; column < terrain.getColumns(); column++) {
+                out.writeFloat(terrain.getColumnHeight(column));
+                out.writeByte(terrain.getExposedRows(column));
+            }
+            out.write(terrain.getTileColors());
+
+            out.writeShort(descriptor.getTrees().size());
+            for (TreeDescriptor tree : descriptor.getTrees()) {
+                Vector2 top = tree.getTrunkTop();
+                out.writeFloat(top.x());
+                out.writeFloat(top.y());
+                out.writeByte(tree.getHeight());
+                out.writeByte(tree.getTrunkColor());
+                out.writeByte(tree.getLeafColor());
+                out.writeShort(tree.getLeafCoordinates().size());
+                for (Vector2 leaf : tree.getLeafCoordinates()) {
+                    // leaves grow on the block grid around the trunk top
+                    out.writeByte(Math.round((leaf.x() - top.x()) / Block.SIZE));
+                    out.writeByte(Math.round((leaf.y() - top.y()) / Block.SIZE));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes a chunk description.
+     *
+     * @param index the chunk index
+     * @param data  the serialized chunk
+     * @return the description of the chunk
+     */
+    private ChunkDescriptor decode(int index, byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int treePlantPercentage = in.readByte();
+            int leafPlantPercentage = in.readByte();
+            float minX = in.readFloat();
+            int columns = in.readShort();
+            int depth = in.readByte();
+            float[] heights = new float[columns];
+            byte[] exposedRows = new byte[columns];
+            for (int column = 0; column < columns; column++) {
+                heights[column] = in.readFloat();
+                exposedRows[column] = in.readByte();
+            }
+            byte[] tileColors = new byte[columns * depth];
+            in.readFully(tileColors);
+            TerrainDescriptor terrain = new TerrainDescriptor(minX, heights, groundPalette, tileColors,
+                    exposedRows, depth);
+
+            int treeCount = in.readShort();
+            List<TreeDescriptor> trees = new ArrayList<>(treeCount);
+            for (int i = 0; i < treeCount; i++) {
+                Vector2 top = new Vector2(in.readFloat(), in.readFloat());
+                int height = in.readByte();
+                int trunkColor = in.readByte();
+                int leafColor = in.readByte();
+                int leafCount = in.readShort();
+                Set<Vector2> leaves = new HashSet<>();
+                for (int leaf = 0; leaf < leafCount; leaf++) {
+                    leaves.add(new Vector2(top.x() + in.readByte() * Block.SIZE,
+                            top.y() + in.readByte() * Block.SIZE));
+                }
+                trees.add(new TreeDescriptor(top, height, trunkColor, leafColor, leaves));
+            }
+            return new ChunkDescriptor(index, terrain, trees, treePlantPercentage, leafPlantPercentage);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return number of restores served from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of chunks that were not hibernated and had to be generated
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return fraction of chunk loads served from the cache rather than generated, 0 if nothing was loaded yet
+     */
+    public float getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (float) hits / total;
+    }
+
+    /**
+     * @return number of chunks evicted to stay within the budget
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return total size of the hibernated chunks, in bytes
+     */
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * @return maximal total size of the hibernated chunks, in bytes
+     */
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * @return number of hibernated chunks
+     */
+    public int size() {
+        return hibernated.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("chunks=%d size=%dB budget=%dB hits=%d misses=%d hitRate=%.2f evictions=%d",
+                hibernated.size(), sizeBytes, budgetBytes, hits, misses, getHitRate(), evictions);
+    }
+}
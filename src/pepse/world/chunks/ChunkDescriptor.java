@@ -0,0 +1,72 @@
+package pepse.world.chunks;
+
+import pepse.world.TerrainDescriptor;
+import pepse.world.trees.TreeDescriptor;
+
+import java.util.List;
+
+/**
+ * Pure description of everything generated for a chunk: its terrain strip and its trees.
+ * Computed by a ChunkGenerator off the game thread, then materialized into game objects.
+ * It records the tree and leaf densities it was generated at, since the same seed only yields the
+ * same chunk at the same densities.
+ */
+public class ChunkDescriptor {
+
+    private final int index;
+    private final TerrainDescriptor terrain;
+    private final List<TreeDescriptor> trees;
+    private final int treePlantPercentage;
+    private final int leafPlantPercentage;
+
+    /**
+     * @param index               the chunk index
+     * @param terrain             the terrain strip of the chunk
+     * @param trees               the trees of the chunk
+     * @param treePlantPercentage the tree density the trees were generated at, out of 100
+     * @param leafPlantPercentage the leaf density the trees were generated at, out of 10
+     */
+    public ChunkDescriptor(int index, TerrainDescriptor terrain, List<TreeDescriptor> trees,
+                           int treePlantPercentage, int leafPlantPercentage) {
+        this.index = index;
+        this.terrain = terrain;
+        this.trees = trees;
+        this.treePlantPercentage = treePlantPercentage;
+        this.leafPlantPercentage = leafPlantPercentage;
+    }
+
+    /**
+     * @return the chunk index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the terrain strip of the chunk
+     */
+    public TerrainDescriptor getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * @return the trees of the chunk
+     */
+    public List<TreeDescriptor> getTrees() {
+        return trees;
+    }
+
+    /**
+     * @return the tree density the chunk was generated at, out of 100
+     */
+    public int getTreePlantPercentage() {
+        return treePlantPercentage;
+    }
+
+    /**
+     * @return the leaf density the chunk was generated at, out of 10
+     */
+    public int getLeafPlantPercentage() {
+        return leafPlantPercentage;
+    }
+}
@@ -0,0 +1,58 @@
+package pepse.world.chunks;
+
+import pepse.world.Terrain;
+import pepse.world.TerrainDescriptor;
+import pepse.world.trees.Tree;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Computes chunk descriptors on worker threads.
+ * Generation only reads the seed, the immutable terrain parameters and the tree densities current
+ * when the chunk starts, so chunks can be described in parallel and in any order.
+ */
+public class ChunkGenerator {
+
+    private final Terrain terrain;
+    private final Tree tree;
+    private final Executor executor;
+
+    /**
+     * @param terrain  the terrain generator
+     * @param tree     the tree generator
+     * @param executor the worker threads to describe chunks on
+     */
+    public ChunkGenerator(Terrain terrain, Tree tree, Executor executor) {
+        this.terrain = terrain;
+        this.tree = tree;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts describing a chunk on a worker thread.
+     *
+     * @param index index of the chunk
+     * @return a future completed with the chunk descriptor
+     */
+    public CompletableFuture<ChunkDescriptor> generateAsync(int index) {
+        return CompletableFuture.supplyAsync(() -> describe(index), executor);
+    }
+
+    /**
+     * Describes a chunk on the calling thread.
+     *
+     * @param index index of the chunk
+     * @return the chunk descriptor
+     */
+    public ChunkDescriptor describe(int index) {
+        int minX = (int) (index * Chunk.WIDTH);
+        int maxX = (int) ((index + 1) * Chunk.WIDTH);
+        int treePlantPercentage = tree.getTreePlantPercentage();
+        int leafPlantPercentage = tree.getLeafPlantPercentage();
+        TerrainDescriptor strip = terrain.describe(minX, maxX);
+        return new ChunkDescriptor(index, strip,
+                tree.describe(minX, maxX, strip, treePlantPercentage, leafPlantPercentage),
+                treePlantPercentage, leafPlantPercentage);
+    }
+}
@@ -0,0 +1,457 @@
+package pepse.world.chunks;
+
+import danogl.collisions.GameObjectCollection;
+import pepse.diagnostics.ChunkBuildEvent;
+import pepse.diagnostics.ChunkRemovalEvent;
+import pepse.util.ObjectPool;
+import pepse.world.Block;
+import pepse.world.LeafBlock;
+import pepse.world.Terrain;
+import pepse.world.trees.Tree;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps track of the loaded chunks of the world.
+ * Chunks are described ahead of need on worker threads, then loaded by materializing their
+ * descriptors into game objects on the game thread. Unloading a chunk removes exactly
+ * the objects the chunk owns and returns them to their pools for reuse.
+ * Both materialization and removal are queued as chunk work and run by a BuildScheduler.
+ * Terrain blocks are created from a chunk's tile description only within TERRAIN_MARGIN chunks of the
+ * window, and dropped again beyond TERRAIN_RELEASE_MARGIN chunks.
+ * Likewise the trunks and leaves of a built chunk only take part in the frame, updated and drawn,
+ * within WAKE_MARGIN chunks of the window: beyond SLEEP_MARGIN chunks the chunk is put to sleep and its
+ * objects leave the game objects while staying resident in the chunk, so the cost of a frame follows
+ * what is near the screen rather than how much of the world is built.
+ * Nothing of a sleeping chunk needs to be integrated over time to wake it: its leaves skip their falls
+ * while asleep, so no particles are spawned far from the window, and a leaf that had already fallen
+ * still grows back on schedule. The wind sway is a function of the shared clock. Waking a chunk
+ * therefore only puts its objects back, already caught up.
+ */
+public class ChunkManager {
+
+    private static final int TERRAIN_MARGIN = 1;
+    private static final int TERRAIN_RELEASE_MARGIN = 2;
+    private static final int WAKE_MARGIN = 1;
+    private static final int SLEEP_MARGIN = 2;
+
+    private final GameObjectCollection gameObjects;
+    private final Terrain terrain;
+    private final Tree tree;
+    private final int terrainLayer;
+    private final int treeLayer;
+    private final int leafLayer;
+    private final ObjectPool<Block> blockPool;
+    private final ObjectPool<LeafBlock> leafPool;
+    private final ChunkGenerator generator;
+    private final BuildScheduler scheduler;
+    private final Map<Integer, Chunk> loadedChunks;
+    private final Map<Integer, CompletableFuture<ChunkDescriptor>> pendingChunks;
+    private ChunkCache cache;
+    private int firstVisible;
+    private int lastVisible;
+    private int sleepingChunks;
+
+
+    public ChunkManager(GameObjectCollection gameObjects, Terrain terrain, Tree tree,
+                        int terrainLayer, int treeLayer, int leafLayer,
+                        ObjectPool<Block> blockPool, ObjectPool<LeafBlock> leafPool, Executor executor,
+                        BuildScheduler scheduler) {
+        this.gameObjects = gameObjects;
+        this.terrain = terrain;
+        this.tree = tree;
+        this.terrainLayer = terrainLayer;
+        this.treeLayer = treeLayer;
+        this.leafLayer = leafLayer;
+        this.blockPool = blockPool;
+        this.leafPool = leafPool;
+        generator = new ChunkGenerator(terrain, tree, executor);
+        this.scheduler = scheduler;
+        loadedChunks = new HashMap<>();
+        pendingChunks = new HashMap<>();
+        firstVisible = 0;
+        lastVisible = -1;
+    }
+
+    /**
+     * Sets the cache unloaded chunks are hibernated in and restored from.
+     *
+     * @param cache the chunk cache, or null to generate revisited chunks again
+     */
+    public void setCache(ChunkCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return the cache of hibernated chunks, or null if there is none
+     */
+    public ChunkCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Updates which chunks overlap the window, creates or drops terrain blocks, and wakes or puts chunks
+     * to sleep accordingly.
+     * Chunk visibility is only recomputed when an edge of the window crosses a chunk boundary.
+     *
+     * @param minX left edge of the window
+     * @param maxX right edge of the window
+     */
+    public void updateVisibility(float minX, float maxX) {
+        int first = Chunk.indexAt(minX);
+        int last = Chunk.indexAt(maxX);
+        if (first == firstVisible && last == lastVisible) {
+            return;
+        }
+        firstVisible = first;
+        lastVisible = last;
+        for (Chunk chunk : loadedChunks.values()) {
+            chunk.setVisible(isVisible(chunk.getIndex()));
+            if (isNearby(chunk.getIndex(), TERRAIN_MARGIN)) {
+                materializeTerrain(chunk);
+            } else if (!isNearby(chunk.getIndex(), TERRAIN_RELEASE_MARGIN)) {
+                releaseTerrain(chunk);
+            }
+            if (isNearby(chunk.getIndex(), WAKE_MARGIN)) {
+                wake(chunk);
+            } else if (!isNearby(chunk.getIndex(), SLEEP_MARGIN)) {
+                sleep(chunk);
+            }
+        }
+    }
+
+    /**
+     * Takes the trunks and leaves of a chunk out of the game objects, keeping them in the chunk.
+     * Chunks that still have queued work stay awake, since their work adds objects to the game.
+     *
+     * @param chunk the chunk
+     */
+    private void sleep(Chunk chunk) {
+        if (chunk.isAsleep() || chunk.getPendingWork() > 0) {
+            return;
+        }
+        for (Block block : chunk.getTrunkBlocks()) {
+            gameObjects.removeGameObject(block, treeLayer);
+        }
+        for (LeafBlock leaf : chunk.getLeaves()) {
+            gameObjects.removeGameObject(leaf, leafLayer);
+            leaf.setAsleep(true);
+        }
+        chunk.setAsleep(true);
+        sleepingChunks++;
+    }
+
+    /**
+     * Puts the trunks and leaves of a sleeping chunk back into the game objects.
+     *
+     * @param chunk the chunk
+     */
+    private void wake(Chunk chunk) {
+        if (!chunk.isAsleep()) {
+            return;
+        }
+        for (Block block : chunk.getTrunkBlocks()) {
+            gameObjects.addGameObject(block, treeLayer);
+        }
+        for (LeafBlock leaf : chunk.getLeaves()) {
+            gameObjects.addGameObject(leaf, leafLayer);
+            leaf.setAsleep(false);
+        }
+        chunk.setAsleep(false);
+        sleepingChunks--;
+    }
+
+    /**
+     * @param index  a chunk index
+     * @param margin number of chunks on each side of the window
+     * @return true if the chunk of that index is at most margin chunks away from the window
+     */
+    private boolean isNearby(int index, int margin) {
+        return index >= firstVisible - margin && index <= lastVisible + margin;
+    }
+
+    /**
+     * Queues the creation of the terrain blocks of a chunk from its tile description, unless they exist.
+     * The blocks of a visible chunk are created right away.
+     *
+     * @param chunk the chunk
+     */
+    private void materializeTerrain(Chunk chunk) {
+        if (chunk.isTerrainMaterialized()) {
+            return;
+        }
+        chunk.setTerrainMaterialized(true);
+        terrain.materialize(chunk.getTerrain(), chunk);
+        if (chunk.isVisible()) {
+            scheduler.flush(chunk);
+        } else {
+            scheduler.schedule(chunk);
+        }
+    }
+
+    /**
+     * Removes and recycles the terrain blocks of a chunk, keeping only its tile description.
+     * Chunks that still have queued work keep their blocks until they are unloaded.
+     *
+     * @param chunk the chunk
+     */
+    private void releaseTerrain(Chunk chunk) {
+        if (!chunk.isTerrainMaterialized() || chunk.getPendingWork() > 0) {
+            return;
+        }
+        for (Block block : chunk.getTerrainBlocks()) {
+            gameObjects.removeGameObject(block, terrainLayer);
+            blockPool.release(block);
+        }
+        chunk.getTerrainBlocks().clear();
+        chunk.setTerrainMaterialized(false);
+    }
+
+    /**
+     * @param index a chunk index
+     * @return true if the chunk of that index overlaps the window
+     */
+    private boolean isVisible(int index) {
+        return index >= firstVisible && index <= lastVisible;
+    }
+
+    /**
+     * Starts describing, on worker threads, every chunk intersecting the given x range
+     * that is neither loaded nor already being described.
+     *
+     * @param minX left bound of the range
+     * @param maxX right bound of the range
+     */
+    public void prefetchRange(float minX, float maxX) {
+        int last = Chunk.indexAt(maxX);
+        for (int index = Chunk.indexAt(minX); index <= last; index++) {
+            if (!loadedChunks.containsKey(index) && !pendingChunks.containsKey(index)
+                    && (cache == null || !cache.contains(index, tree.getTreePlantPercentage(),
+                    tree.getLeafPlantPercentage()))) {
+                recordCacheMiss();
+                pendingChunks.put(index, generator.generateAsync(index));
+            }
+        }
+    }
+
+    /**
+     * Counts, in the cache if there is one, a chunk that is sent to the generator because it was not hibernated.
+     */
+    private void recordCacheMiss() {
+        if (cache != null) {
+            cache.recordMiss();
+        }
+    }
+
+    /**
+     * Loads the chunks intersecting the given x range whose descriptors are ready or hibernated.
+     * Chunks intersecting the required range are loaded and completed right away, even if that
+     * means waiting for, or computing, their descriptors on the game thread. The others are
+     * built by the scheduler within its frame budget.
+     *
+     * @param minX         left bound of the range
+     * @param maxX         right bound of the range
+     * @param requiredMinX left bound of the range that must be loaded now
+     * @param requiredMaxX right bound of the range that must be loaded now
+     */
+    public void loadRange(float minX, float maxX, float requiredMinX, float requiredMaxX) {
+        int last = Chunk.indexAt(maxX);
+        int firstRequired = Chunk.indexAt(requiredMinX);
+        int lastRequired = Chunk.indexAt(requiredMaxX);
+        for (int index = Chunk.indexAt(minX); index <= last; index++) {
+            boolean required = index >= firstRequired && index <= lastRequired;
+            Chunk loaded = loadedChunks.get(index);
+            if (loaded != null) {
+                if (required && loaded.getPendingWork() > 0) {
+                    scheduler.flush(loaded);
+                }
+                continue;
+            }
+            CompletableFuture<ChunkDescriptor> pending = pendingChunks.get(index);
+            if (pending == null) {
+                ChunkDescriptor hibernated = cache == null ? null
+                        : cache.get(index, tree.getTreePlantPercentage(), tree.getLeafPlantPercentage());
+                if (hibernated != null) {
+                    loadChunk(hibernated, required);
+                } else if (required) {
+                    recordCacheMiss();
+                    loadChunk(generator.describe(index), true);
+                } else {
+                    recordCacheMiss();
+                    pendingChunks.put(index, generator.generateAsync(index));
+                }
+            } else if (required || pending.isDone()) {
+                pendingChunks.remove(index);
+                loadChunk(pending.join(), required);
+            }
+        }
+    }
+
+    /**
+     * Unloads every loaded chunk that does not intersect the given x range.
+     *
+     * @param minX left bound of the range to keep
+     * @param maxX right bound of the range to keep
+     */
+    public void unloadOutside(float minX, float maxX) {
+        int first = Chunk.indexAt(minX);
+        int last = Chunk.indexAt(maxX);
+        Iterator<Chunk> it = loadedChunks.values().iterator();
+        while (it.hasNext()) {
+            Chunk chunk = it.next();
+            if (chunk.getIndex() < first || chunk.getIndex() > last) {
+                enqueueRemoval(chunk);
+                it.remove();
+            }
+        }
+        Iterator<Map.Entry<Integer, CompletableFuture<ChunkDescriptor>>> pending =
+                pendingChunks.entrySet().iterator();
+        while (pending.hasNext()) {
+            Map.Entry<Integer, CompletableFuture<ChunkDescriptor>> entry = pending.next();
+            if (entry.getKey() < first || entry.getKey() > last) {
+                entry.getValue().cancel(false);
+                pending.remove();
+            }
+        }
+    }
+
+    /**
+     * Queues the materialization of a described chunk and registers it as loaded.
+     * Terrain blocks are only created if the chunk is near the window, and a chunk built far from it
+     * goes to sleep as soon as its build completes.
+     *
+     * @param descriptor the description of the chunk to load
+     * @param required   true to build the chunk right away instead of within the frame budget
+     */
+    private void loadChunk(ChunkDescriptor descriptor, boolean required) {
+        ChunkBuildEvent event = new ChunkBuildEvent();
+        event.begin();
+        Chunk chunk = new Chunk(descriptor.getIndex());
+        chunk.setVisible(isVisible(chunk.getIndex()));
+        chunk.setDescriptor(descriptor);
+        terrain.cacheHeights(descriptor.getTerrain());
+        if (isNearby(chunk.getIndex(), TERRAIN_MARGIN)) {
+            chunk.setTerrainMaterialized(true);
+            terrain.materialize(descriptor.getTerrain(), chunk);
+        }
+        tree.materialize(descriptor.getTrees(), chunk);
+        chunk.enqueueWork(() -> {
+            commitBuildEvent(event, chunk, required);
+            if (!isNearby(chunk.getIndex(), SLEEP_MARGIN)) {
+                sleep(chunk);
+            }
+        });
+        loadedChunks.put(chunk.getIndex(), chunk);
+        if (required) {
+            scheduler.flush(chunk);
+        } else {
+            scheduler.schedule(chunk);
+        }
+    }
+
+    /**
+     * Hibernates a chunk, drops its unfinished build work and queues the removal of the objects it owns,
+     * one unit of work per object. Removed objects are recycled; those of a sleeping chunk are
+     * already out of the game objects and only go back to their pools.
+     *
+     * @param chunk the chunk to clear
+     */
+    private void enqueueRemoval(Chunk chunk) {
+        if (cache != null) {
+            cache.put(chunk.getDescriptor());
+        }
+        ChunkRemovalEvent event = new ChunkRemovalEvent();
+        event.begin();
+        long workNanosBefore = chunk.getWorkNanos();
+        int objects = chunk.getObjectCount();
+        boolean asleep = chunk.isAsleep();
+        if (asleep) {
+            chunk.setAsleep(false);
+            sleepingChunks--;
+        }
+        chunk.clearWork();
+        for (Block block : chunk.getTerrainBlocks()) {
+            chunk.enqueueWork(() -> {
+                gameObjects.removeGameObject(block, terrainLayer);
+                blockPool.release(block);
+            });
+        }
+        for (Block block : chunk.getTrunkBlocks()) {
+            chunk.enqueueWork(() -> {
+                if (!asleep) {
+                    gameObjects.removeGameObject(block, treeLayer);
+                }
+                blockPool.release(block);
+            });
+        }
+        for (LeafBlock leaf : chunk.getLeaves()) {
+            chunk.enqueueWork(() -> {
+                if (!asleep) {
+                    gameObjects.removeGameObject(leaf, leafLayer);
+                }
+                leaf.cancelLife();
+                leafPool.release(leaf);
+            });
+        }
+        chunk.enqueueWork(() -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.chunkIndex = chunk.getIndex();
+                event.objectsRemoved = objects;
+                event.workTime = chunk.getWorkNanos() - workNanosBefore;
+                event.commit();
+            }
+        });
+        scheduler.schedule(chunk);
+    }
+
+    /**
+     * Records the flight recorder event of a chunk whose build work just completed.
+     *
+     * @param event    the event, begun when the chunk was queued
+     * @param chunk    the built chunk
+     * @param required whether the chunk was built at once
+     */
+    private static void commitBuildEvent(ChunkBuildEvent event, Chunk chunk, boolean required) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.chunkIndex = chunk.getIndex();
+            event.minX = chunk.getMinX();
+            event.maxX = chunk.getMaxX();
+            event.objectsCreated = chunk.getObjectCount();
+            event.required = required;
+            event.workTime = chunk.getWorkNanos();
+            event.commit();
+        }
+    }
+
+    /**
+     * @return the indices of the currently loaded chunks
+     */
+    public Set<Integer> getLoadedChunkIndices() {
+        return Collections.unmodifiableSet(loadedChunks.keySet());
+    }
+
+    /**
+     * @return number of loaded chunks whose trunks and leaves are out of the game objects
+     */
+    public int getSleepingChunkCount() {
+        return sleepingChunks;
+    }
+
+    /**
+     * @return number of chunks currently being described on worker threads
+     */
+    public int getPendingChunkCount() {
+        return pendingChunks.size();
+    }
+
+    /**
+     * @return the currently loaded chunks
+     */
+    public Collection<Chunk> getLoadedChunks() {
+        return Collections.unmodifiableCollection(loadedChunks.values());
+    }
+}
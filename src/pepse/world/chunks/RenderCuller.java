@@ -0,0 +1,81 @@
+package pepse.world.chunks;
+
+import java.util.Collection;
+
+/**
+ * Skips drawing the objects of loaded chunks that are out of the camera's view.
+ * The test is made per chunk against its x range, widened by a margin that covers whatever overhangs
+ * a chunk's edges, such as the leaves of a tree at its border. Culling a chunk hides all of its objects
+ * at once, without a bounds test per object.
+ * A chunk with queued work is never culled, since its work creates objects that would be drawn anyway;
+ * it is culled once its work is done.
+ */
+public class RenderCuller {
+
+    private final float margin;
+    private int drawnObjects;
+    private int culledObjects;
+    private int culledChunks;
+
+    /**
+     * @param margin distance beyond the view a chunk may reach into it, in pixels
+     */
+    public RenderCuller(float margin) {
+        this.margin = margin;
+    }
+
+    /**
+     * Culls the chunks out of view and restores the ones that came into view.
+     * Should be called once per frame, after the chunks were loaded and built.
+     *
+     * @param chunks the loaded chunks
+     * @param minX   left edge of the view
+     * @param maxX   right edge of the view
+     */
+    public void update(Collection<Chunk> chunks, float minX, float maxX) {
+        drawnObjects = 0;
+        culledObjects = 0;
+        culledChunks = 0;
+        for (Chunk chunk : chunks) {
+            boolean inView = chunk.getMaxX() + margin > minX && chunk.getMinX() - margin < maxX;
+            chunk.setCulled(!inView && chunk.getPendingWork() == 0);
+            if (chunk.isCulled()) {
+                culledChunks++;
+            }
+            if (chunk.isAsleep()) {
+                continue;
+            }
+            if (chunk.isCulled()) {
+                culledObjects += chunk.getObjectCount();
+            } else {
+                drawnObjects += chunk.getObjectCount();
+            }
+        }
+    }
+
+    /**
+     * @return number of chunk objects in the game that were drawn in the last frame
+     */
+    public int getDrawnObjects() {
+        return drawnObjects;
+    }
+
+    /**
+     * @return number of chunk objects in the game that were skipped in the last frame
+     */
+    public int getCulledObjects() {
+        return culledObjects;
+    }
+
+    /**
+     * @return number of loaded chunks that were culled in the last frame, asleep or not
+     */
+    public int getCulledChunks() {
+        return culledChunks;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d drawn, %d culled (%d chunks)", drawnObjects, culledObjects, culledChunks);
+    }
+}
@@ -0,0 +1,164 @@
+package pepse.world.chunks;
+
+/**
+ * Decides which strip of the world to prefetch, build and keep around the window, from the window's
+ * position and how fast it is moving. The world is built further ahead in the direction of travel and
+ * trimmed closer behind. The kept range is the removal range, widened when needed to cover the prefetch
+ * range, so descriptions in flight are not cancelled, and to extend a HYSTERESIS margin beyond the built
+ * range, so moving back and forth around a boundary does not build and remove the same chunks over and over.
+ * The velocity is smoothed, so a short jitter does not flip which side counts as ahead.
+ * All margins are in screens, the width of the window.
+ */
+public class StreamingPolicy {
+
+    private static final float SMOOTHING_SECONDS = 0.5f;
+    private static final float LOOKAHEAD_SECONDS = 1.5f;
+    private static final float MAX_LEAD = 2f;
+    private static final float REFERENCE_SPEED = 300f;
+    private static final float BEHIND_TRIM = 0.5f;
+    private static final float HYSTERESIS = 1f;
+
+    private final float screenWidth;
+    private final float buildFactor;
+    private final float prefetchFactor;
+    private final float removalFactor;
+    private float distanceScale;
+    private float velocity;
+    private float lastMinX;
+    private boolean hasLastPosition;
+    private float buildMin;
+    private float buildMax;
+    private float prefetchMin;
+    private float prefetchMax;
+    private float keepMin;
+    private float keepMax;
+
+    /**
+     * @param screenWidth    width of the window
+     * @param buildFactor    screens built on each side of the window when standing still
+     * @param prefetchFactor screens prefetched on each side of the window when standing still
+     * @param removalFactor  screens kept on each side of the window when standing still; the kept range
+     *                       never falls short of the prefetch range or of the build range plus HYSTERESIS
+     */
+    public StreamingPolicy(float screenWidth, float buildFactor, float prefetchFactor, float removalFactor) {
+        this.screenWidth = screenWidth;
+        this.buildFactor = buildFactor;
+        this.prefetchFactor = prefetchFactor;
+        this.removalFactor = removalFactor;
+        distanceScale = 1;
+    }
+
+    /**
+     * Scales the distances built, prefetched and kept around the window, from the next update on.
+     * The hysteresis margin and the lead in the direction of travel are not scaled.
+     *
+     * @param distanceScale factor applied to the build, prefetch and removal factors
+     */
+    public void setDistanceScale(float distanceScale) {
+        this.distanceScale = distanceScale;
+    }
+
+    /**
+     * @return factor applied to the build, prefetch and removal factors
+     */
+    public float getDistanceScale() {
+        return distanceScale;
+    }
+
+    /**
+     * Updates the velocity estimate and the ranges for the window's new position.
+     * Should be called once per frame.
+     *
+     * @param minX      left edge of the window
+     * @param maxX      right edge of the window
+     * @param deltaTime seconds since the previous frame
+     */
+    public void update(float minX, float maxX, float deltaTime) {
+        if (hasLastPosition && deltaTime > 0) {
+            float frameVelocity = (minX - lastMinX) / deltaTime;
+            float weight = 1 - (float) Math.exp(-deltaTime / SMOOTHING_SECONDS);
+            velocity += (frameVelocity - velocity) * weight;
+        }
+        lastMinX = minX;
+        hasLastPosition = true;
+
+        float lead = clamp(velocity * LOOKAHEAD_SECONDS, -MAX_LEAD * screenWidth, MAX_LEAD * screenWidth);
+        float heading = clamp(velocity / REFERENCE_SPEED, -1, 1);
+        float aheadRight = Math.max(0, lead);
+        float aheadLeft = Math.max(0, -lead);
+        float trimRight = BEHIND_TRIM * Math.max(0, -heading);
+        float trimLeft = BEHIND_TRIM * Math.max(0, heading);
+
+        float build = screenWidth * buildFactor * distanceScale;
+        float prefetch = screenWidth * prefetchFactor * distanceScale;
+        float removal = screenWidth * removalFactor * distanceScale;
+        float buildLeft = build * (1 - trimLeft) + aheadLeft;
+        float buildRight = build * (1 - trimRight) + aheadRight;
+        float prefetchLeft = Math.max(buildLeft, prefetch * (1 - trimLeft) + 2 * aheadLeft);
+        float prefetchRight = Math.max(buildRight, prefetch * (1 - trimRight) + 2 * aheadRight);
+        float keepLeft = Math.max(Math.max(removal * (1 - trimLeft), prefetchLeft),
+                buildLeft + HYSTERESIS * screenWidth);
+        float keepRight = Math.max(Math.max(removal * (1 - trimRight), prefetchRight),
+                buildRight + HYSTERESIS * screenWidth);
+
+        buildMin = minX - buildLeft;
+        buildMax = maxX + buildRight;
+        prefetchMin = minX - prefetchLeft;
+        prefetchMax = maxX + prefetchRight;
+        keepMin = minX - keepLeft;
+        keepMax = maxX + keepRight;
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * @return smoothed horizontal velocity of the window, in pixels per second
+     */
+    public float getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * @return left bound of the range to build
+     */
+    public float getBuildMin() {
+        return buildMin;
+    }
+
+    /**
+     * @return right bound of the range to build
+     */
+    public float getBuildMax() {
+        return buildMax;
+    }
+
+    /**
+     * @return left bound of the range to describe ahead of need
+     */
+    public float getPrefetchMin() {
+        return prefetchMin;
+    }
+
+    /**
+     * @return right bound of the range to describe ahead of need
+     */
+    public float getPrefetchMax() {
+        return prefetchMax;
+    }
+
+    /**
+     * @return left bound of the range to keep loaded
+     */
+    public float getKeepMin() {
+        return keepMin;
+    }
+
+    /**
+     * @return right bound of the range to keep loaded
+     */
+    public float getKeepMax() {
+        return keepMax;
+    }
+}
@@ -0,0 +1,231 @@
+package pepse.world.trees;
+
+import danogl.GameObject;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.util.ColorPalette;
+import pepse.world.Block;
+import pepse.world.HeightField;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+
+/**
+ * Simulates falling leaves as particles instead of game objects.
+ * The state of every particle lives in primitive arrays, one per field, advanced in a single loop per frame:
+ * a particle falls, spins, lands on the ground surface found through the height field, and fades out.
+ * All particles are drawn by one renderable, so a few thousand of them cost one game object.
+ * The object stretches over the bounding box of the live particles, which keeps it on screen exactly
+ * while some particle may be.
+ */
+public class FallingLeaves extends GameObject {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 16384;
+    private static final int ALPHA_LEVELS = 16;
+    private static final float SPIN_FACTOR = 6f;
+
+    private final HeightField heightField;
+    private final ColorPalette palette;
+    private final float fallVelocity;
+    private final float fadeSeconds;
+    private final AlphaComposite[] composites;
+    private float[] x;
+    private float[] y;
+    private float[] vy;
+    private float[] alpha;
+    private float[] angle;
+    private float[] spin;
+    private byte[] color;
+    private int count;
+    private long dropped;
+
+    /**
+     * @param heightField  the ground the particles land on, null to let them fall through
+     * @param palette      the palette the particle colors are indices into
+     * @param fallVelocity speed particles fall at
+     * @param fadeSeconds  time a particle takes to fade out
+     */
+    public FallingLeaves(HeightField heightField, ColorPalette palette, float fallVelocity, float fadeSeconds) {
+        super(Vector2.ZERO, Vector2.ONES, null);
+        this.heightField = heightField;
+        this.palette = palette;
+        this.fallVelocity = fallVelocity;
+        this.fadeSeconds = fadeSeconds;
+        composites = new AlphaComposite[ALPHA_LEVELS + 1];
+        for (int i = 0; i <= ALPHA_LEVELS; i++) {
+            composites[i] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) i / ALPHA_LEVELS);
+        }
+        allocate(INITIAL_CAPACITY);
+        renderer().setRenderable(new ParticleRenderable());
+    }
+
+    private void allocate(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        vy = new float[capacity];
+        alpha = new float[capacity];
+        angle = new float[capacity];
+        spin = new float[capacity];
+        color = new byte[capacity];
+    }
+
+    /**
+     * Doubles the capacity of the particle arrays, keeping the live particles.
+     *
+     * @return false if the capacity is already at MAX_CAPACITY
+     */
+    private boolean grow() {
+        if (x.length >= MAX_CAPACITY) {
+            return false;
+        }
+        int capacity = Math.min(MAX_CAPACITY, 2 * x.length);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        alpha = Arrays.copyOf(alpha, capacity);
+        angle = Arrays.copyOf(angle, capacity);
+        spin = Arrays.copyOf(spin, capacity);
+        color = Arrays.copyOf(color, capacity);
+        return true;
+    }
+
+    /**
+     * Starts a falling leaf at the given position. Dropped if MAX_CAPACITY leaves are already falling.
+     *
+     * @param topLeftX      x of the top left corner of the leaf
+     * @param topLeftY      y of the top left corner of the leaf
+     * @param colorIndex    palette index of the leaf's color
+     * @param swayAmplitude sway amplitude of the leaf in degrees, sets how fast and which way it spins
+     * @param opacity       opacity the leaf starts fading from
+     */
+    public void spawn(float topLeftX, float topLeftY, int colorIndex, float swayAmplitude, float opacity) {
+        if (count == x.length && !grow()) {
+            dropped++;
+            return;
+        }
+        int i = count++;
+        x[i] = topLeftX;
+        y[i] = topLeftY;
+        vy[i] = fallVelocity;
+        alpha[i] = opacity;
+        angle[i] = 0;
+        spin[i] = (float) Math.toRadians(swayAmplitude * SPIN_FACTOR);
+        color[i] = (byte) colorIndex;
+    }
+
+    @Override
+    public void update(float deltaTime) {
+        super.update(deltaTime);
+        float fade = deltaTime / fadeSeconds;
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        int i = 0;
+        while (i < count) {
+            alpha[i] -= fade;
+            if (alpha[i] <= 0) {
+                removeAt(i);
+                continue;
+            }
+            if (vy[i] > 0) {
+                y[i] += vy[i] * deltaTime;
+                angle[i] += spin[i] * deltaTime;
+                if (heightField != null) {
+                    float groundTop = heightField.groundTopAt(x[i] + Block.SIZE / 2);
+                    if (y[i] + Block.SIZE >= groundTop) {
+                        y[i] = groundTop - Block.SIZE;
+                        vy[i] = 0;
+                    }
+                }
+            }
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+            i++;
+        }
+        if (count > 0) {
+            setTopLeftCorner(new Vector2(minX - Block.SIZE, minY - Block.SIZE));
+            setDimensions(new Vector2(maxX - minX + 3 * Block.SIZE, maxY - minY + 3 * Block.SIZE));
+        }
+    }
+
+    /**
+     * Removes a particle by moving the last one into its place.
+     *
+     * @param i index of the particle
+     */
+    private void removeAt(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        vy[i] = vy[last];
+        alpha[i] = alpha[last];
+        angle[i] = angle[last];
+        spin[i] = spin[last];
+        color[i] = color[last];
+    }
+
+    /**
+     * Removes every particle.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * @return number of leaves currently falling or fading on the ground
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return number of leaves not shown because MAX_CAPACITY leaves were already falling
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Draws all particles, mapping world coordinates through the position its object is drawn at.
+     * Colors and alpha composites are shared, so drawing allocates nothing per particle.
+     */
+    private class ParticleRenderable implements Renderable {
+
+        @Override
+        public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                           double degreesCounterClockwise, boolean isFlippedHorizontally,
+                           boolean isFlippedVertically, double opaqueness) {
+            if (count == 0) {
+                return;
+            }
+            Composite oldComposite = g.getComposite();
+            AffineTransform oldTransform = g.getTransform();
+            float scaleX = dimensions.x() / getDimensions().x();
+            float scaleY = dimensions.y() / getDimensions().y();
+            float originX = getTopLeftCorner().x();
+            float originY = getTopLeftCorner().y();
+            int width = Math.round(Block.SIZE * scaleX);
+            int height = Math.round(Block.SIZE * scaleY);
+            for (int i = 0; i < count; i++) {
+                int screenX = Math.round(topLeftCorner.x() + (x[i] - originX) * scaleX);
+                int screenY = Math.round(topLeftCorner.y() + (y[i] - originY) * scaleY);
+                int level = Math.min(ALPHA_LEVELS, Math.round(alpha[i] * (float) opaqueness * ALPHA_LEVELS));
+                g.setComposite(composites[level]);
+                g.setColor(palette.getColor(color[i]));
+                if (angle[i] != 0) {
+                    g.rotate(angle[i], screenX + width / 2.0, screenY + height / 2.0);
+                    g.fillRect(screenX, screenY, width, height);
+                    g.setTransform(oldTransform);
+                } else {
+                    g.fillRect(screenX, screenY, width, height);
+                }
+            }
+            g.setComposite(oldComposite);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package pepse.world.trees;
+
+import danogl.util.Vector2;
+import jdk.jfr.EventType;
+import pepse.diagnostics.LeafCycleEvent;
+import pepse.util.ObjectPool;
+import pepse.world.LeafBlock;
+
+/**
+ * A hashed timer wheel that owns the life cycle of every leaf: when it falls, and when it grows back.
+ * Time advances in ticks of TICK_SECONDS; each tick only visits the events in its own slot, so the cost
+ * of a frame follows the number of leaves due, not the number of leaves alive.
+ * A fall hides the leaf and hands it to the falling leaf particles for the fade.
+ * Event objects are pooled and rescheduled in place. Leaves of unloaded chunks are not searched for:
+ * their events are recognized as stale when they come due, by the leaf's life epoch, and recycled then.
+ */
+public class LeafLifeScheduler {
+
+    private static final float TICK_SECONDS = 0.25f;
+    private static final int SLOTS = 512; // must be a power of two, covers 128 s
+    private static final int EVENT_POOL_CAPACITY = 4096;
+    private static final EventType LEAF_CYCLE_TYPE = EventType.getEventType(LeafCycleEvent.class);
+
+    private final FallingLeaves fallingLeaves;
+    private final float fadeSeconds;
+    private final float opacity;
+    private final LeafEvent[] slots;
+    private final ObjectPool<LeafEvent> eventPool;
+    private long currentTick;
+    private float sinceTick;
+    private int scheduled;
+    private int firedLastFrame;
+    private long staleDropped;
+    private long asleepSkipped;
+    private float periodScale;
+
+    /**
+     * @param fallingLeaves the particles fallen leaves are simulated as
+     * @param fadeSeconds   time a fallen leaf takes to fade out before it grows back
+     * @param opacity       opacity of a grown leaf
+     */
+    public LeafLifeScheduler(FallingLeaves fallingLeaves, float fadeSeconds, float opacity) {
+        this.fallingLeaves = fallingLeaves;
+        this.fadeSeconds = fadeSeconds;
+        this.opacity = opacity;
+        slots = new LeafEvent[SLOTS];
+        eventPool = new ObjectPool<>(LeafEvent::new, EVENT_POOL_CAPACITY);
+        periodScale = 1;
+    }
+
+    /**
+     * Scales the time between two falls of every leaf, from their next fall on.
+     * Below 1 leaves fall more often, down to falling again as soon as they grew back.
+     *
+     * @param periodScale factor applied to the leaf periods
+     */
+    public void setPeriodScale(float periodScale) {
+        this.periodScale = periodScale;
+    }
+
+    /**
+     * @return factor applied to the leaf periods
+     */
+    public float getPeriodScale() {
+        return periodScale;
+    }
+
+    /**
+     * Starts the life cycle of a leaf that was just placed: it falls every period seconds,
+     * starting period seconds from now. Any earlier cycle of the leaf must have been cancelled.
+     *
+     * @param leaf   the leaf
+     * @param period seconds between two falls, longer than the fade
+     */
+    public void start(LeafBlock leaf, float period) {
+        LeafEvent event = eventPool.acquire();
+        event.leaf = leaf;
+        event.epoch = leaf.getLifeEpoch();
+        event.period = period;
+        event.falls = true;
+        event.cycle = null;
+        schedule(event, period * periodScale);
+    }
+
+    /**
+     * Moves time forward and fires the events that came due.
+     * Should be called once per frame.
+     *
+     * @param deltaTime seconds since the previous frame
+     */
+    public void advance(float deltaTime) {
+        firedLastFrame = 0;
+        sinceTick += deltaTime;
+        while (sinceTick >= TICK_SECONDS) {
+            sinceTick -= TICK_SECONDS;
+            currentTick++;
+            runSlot((int) (currentTick & (SLOTS - 1)));
+        }
+    }
+
+    /**
+     * Drops every scheduled event back into the pool, ending the life cycle of all leaves.
+     * Used when all leaves were removed at once.
+     */
+    public void clear() {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            LeafEvent event = slots[slot];
+            slots[slot] = null;
+            while (event != null) {
+                LeafEvent next = event.next;
+                event.leaf = null;
+                event.cycle = null;
+                event.next = null;
+                eventPool.release(event);
+                event = next;
+            }
+        }
+        scheduled = 0;
+    }
+
+    /**
+     * Fires the events of a slot that are due in this round, keeping the others.
+     *
+     * @param slot index of the slot
+     */
+    private void runSlot(int slot) {
+        LeafEvent event = slots[slot];
+        slots[slot] = null;
+        while (event != null) {
+            LeafEvent next = event.next;
+            scheduled--;
+            if (event.rounds > 0) {
+                event.rounds--;
+                link(event, slot);
+            } else {
+                fire(event);
+            }
+            event = next;
+        }
+    }
+
+    /**
+     * Runs an event: a fall hides the leaf and spawns a falling particle in its place, a regrowth shows it again.
+     * The falls of leaves of sleeping chunks are skipped to their next period.
+     * Either way the event is rescheduled for the next step of the cycle, unless it is stale.
+     *
+     * @param event the event that came due
+     */
+    private void fire(LeafEvent event) {
+        LeafBlock leaf = event.leaf;
+        if (event.epoch != leaf.getLifeEpoch()) {
+            staleDropped++;
+            event.leaf = null;
+            event.cycle = null;
+            eventPool.release(event);
+            return;
+        }
+        if (event.falls && leaf.isAsleep()) {
+            // the leaf's chunk is far from the window: skip this fall, the leaf stays on its tree
+            asleepSkipped++;
+            schedule(event, event.period * periodScale);
+            return;
+        }
+        firedLastFrame++;
+        if (event.falls) {
+            if (LEAF_CYCLE_TYPE.isEnabled()) {
+                event.cycle = new LeafCycleEvent();
+                event.cycle.begin();
+            }
+            Vector2 home = leaf.getHomePosition();
+            fallingLeaves.spawn(home.x(), home.y(), leaf.getColorIndex(), leaf.getSwayAmplitude(), opacity);
+            leaf.detach();
+            event.falls = false;
+            schedule(event, fadeSeconds);
+        } else {
+            leaf.regrow(opacity);
+            commitCycle(event);
+            event.falls = true;
+            schedule(event, event.period * periodScale - fadeSeconds);
+        }
+    }
+
+    /**
+     * Records the flight recorder event of a completed leaf cycle, if one was started.
+     *
+     * @param event the regrowth event of the cycle
+     */
+    private static void commitCycle(LeafEvent event) {
+        LeafCycleEvent cycle = event.cycle;
+        if (cycle == null) {
+            return;
+        }
+        event.cycle = null;
+        cycle.end();
+        if (cycle.shouldCommit()) {
+            cycle.homeX = event.leaf.getHomePosition().x();
+            cycle.homeY = event.leaf.getHomePosition().y();
+            cycle.commit();
+        }
+    }
+
+    /**
+     * Places an event in the slot it comes due in.
+     *
+     * @param event        the event
+     * @param delaySeconds seconds from now until it is due
+     */
+    private void schedule(LeafEvent event, float delaySeconds) {
+        long ticks = Math.max(1, (long) Math.ceil(delaySeconds / TICK_SECONDS));
+        event.rounds = (int) ((ticks - 1) / SLOTS);
+        link(event, (int) ((currentTick + ticks) & (SLOTS - 1)));
+    }
+
+    private void link(LeafEvent event, int slot) {
+        event.next = slots[slot];
+        slots[slot] = event;
+        scheduled++;
+    }
+
+    /**
+     * @return number of events waiting in the wheel, stale ones included
+     */
+    public int getScheduledCount() {
+        return scheduled;
+    }
+
+    /**
+     * @return number of live events fired during the last frame
+     */
+    public int getFiredLastFrame() {
+        return firedLastFrame;
+    }
+
+    /**
+     * @return number of events dropped because their leaf was recycled
+     */
+    public long getStaleDropped() {
+        return staleDropped;
+    }
+
+    /**
+     * @return number of falls skipped because the leaf's chunk was asleep
+     */
+    public long getAsleepSkipped() {
+        return asleepSkipped;
+    }
+
+    /**
+     * A scheduled step in the life of one leaf. Linked into the slot of the tick it comes due in.
+     */
+    private static class LeafEvent {
+        private LeafBlock leaf;
+        private int epoch;
+        private float period;
+        private boolean falls;
+        private int rounds;
+        private LeafEvent next;
+        private LeafCycleEvent cycle;
+    }
+}
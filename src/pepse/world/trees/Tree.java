@@ -1,24 +1,25 @@
 package pepse.world.trees;
 
-import danogl.GameObject;
 import danogl.collisions.GameObjectCollection;
-import danogl.components.ScheduledTask;
-import danogl.components.Transition;
-import danogl.gui.rendering.RectangleRenderable;
 import danogl.gui.rendering.Renderable;
-import danogl.util.MutableVector2;
 import danogl.util.Vector2;
+import pepse.util.ColorPalette;
 import pepse.util.ColorSupplier;
+import pepse.util.ObjectPool;
+import pepse.util.PositionRandom;
 import pepse.world.Block;
+import pepse.world.HeightField;
 import pepse.world.LeafBlock;
-import pepse.world.Terrain;
+import pepse.world.TerrainDescriptor;
+import pepse.world.chunks.Chunk;
 
 import java.awt.*;
 import java.util.*;
+import java.util.List;
 
 public class Tree {
 
-    private static final int TREE_PLANT_PERCENTAGE = 10;
+    public static final int TREE_PLANT_PERCENTAGE = 10;
     private static final int TREE_MAX_BLOCK_HEIGHT = 15;
     private static final int TREE_MIN_BLOCK_HEIGHT = 8;
     private static final Color TREE_BLOCK_COLOR = new Color(100, 50, 20);
@@ -26,86 +27,233 @@ public class Tree {
     public static final int LEAF_BLOCK_RANGE = 2;
     public static final int LEAF_PLANT_PERCENTAGE = 8;
     public static final float LEAF_OPACITY = 0.8f;
-    public static final float DELAY_OF_FIVE = 5f;
     public static final String LEAF_TAG = "leaf";
     public static final String TREE_TAG = "tree";
+    private static final int LEAF_POOL_CAPACITY = 4096;
+    private static final long PLANT_SALT = 1;
+    private static final long TREE_SALT = 2;
+    private static final long SWAY_SALT = 3;
+    private static final long LIFE_SALT = 4;
+    private static final int LEAF_MIN_PERIOD = 20;
+    private static final int LEAF_PERIOD_RANGE = 60;
+    private static final float LEAF_FALL_VELOCITY = 200f;
+    private static final float LEAF_FADE_SECONDS = 10f;
+    private static final float SWAY_ANGLE = 5f;
+    private static final float[] SWAY_AMPLITUDES = {-SWAY_ANGLE, SWAY_ANGLE, -2 * SWAY_ANGLE, 2 * SWAY_ANGLE};
 
 
     private final GameObjectCollection gameObjects;
-    private final Terrain terrain;
     private final int treeLayer;
     private final int leafLayer;
-    private final Random random;
-    private final MutableVector2 windowBorder;
+    private final long seed;
+    private final FallingLeaves fallingLeaves;
+    private final LeafLifeScheduler leafLifeScheduler;
+    private final ObjectPool<Block> blockPool;
+    private final ObjectPool<LeafBlock> leafPool;
+    private final ColorPalette trunkPalette;
+    private final ColorPalette leafPalette;
+    private boolean mergedGeometry;
+    private volatile int leafPlantPercentage;
+    private volatile int treePlantPercentage;
 
 
-    public Tree(GameObjectCollection gameObjects, Terrain terrain, int treeLayer, MutableVector2 windowBorder,
-                int leafLayer, long seed) {
+    public Tree(GameObjectCollection gameObjects, int treeLayer,
+                int leafLayer, long seed, ObjectPool<Block> blockPool, HeightField heightField) {
 
         this.gameObjects = gameObjects;
-        this.terrain = terrain;
         this.treeLayer = treeLayer;
         this.leafLayer = leafLayer;
-        this.windowBorder = windowBorder; // for use in transition control
-        random = new Random(Objects.hash(60, seed));
+        this.seed = seed;
+        this.blockPool = blockPool;
+        this.leafPool = new ObjectPool<>(this::createLeafBlock, LEAF_POOL_CAPACITY);
+        leafPlantPercentage = LEAF_PLANT_PERCENTAGE;
+        treePlantPercentage = TREE_PLANT_PERCENTAGE;
+        trunkPalette = ColorSupplier.palette(TREE_BLOCK_COLOR);
+        leafPalette = ColorSupplier.palette(LEAF_BLOCK_COLOR);
+        fallingLeaves = new FallingLeaves(heightField, leafPalette, LEAF_FALL_VELOCITY, LEAF_FADE_SECONDS);
+        gameObjects.addGameObject(fallingLeaves, leafLayer);
+        leafLifeScheduler = new LeafLifeScheduler(fallingLeaves, LEAF_FADE_SECONDS, LEAF_OPACITY);
+    }
+
+    /**
+     * Returns the scheduler of the leaves' falls and regrowths. It must be advanced every frame.
+     *
+     * @return the leaf life scheduler
+     */
+    public LeafLifeScheduler getLeafLifeScheduler() {
+        return leafLifeScheduler;
+    }
+
+    /**
+     * Returns the particles fallen leaves are simulated as, until they grow back on their tree.
+     *
+     * @return the falling leaves
+     */
+    public FallingLeaves getFallingLeaves() {
+        return fallingLeaves;
+    }
+
+    /**
+     * Returns the pool recycled leaves are taken from. Leaves of unloaded chunks should be released to it.
+     *
+     * @return the leaf pool
+     */
+    public ObjectPool<LeafBlock> getLeafPool() {
+        return leafPool;
+    }
+
+    /**
+     * Sets whether each trunk is built as a single tall collider instead of one block per tile.
+     *
+     * @param mergedGeometry true to merge trunks into single colliders
+     */
+    public void setMergedGeometry(boolean mergedGeometry) {
+        this.mergedGeometry = mergedGeometry;
+    }
+
+    /**
+     * Sets how densely leaves grow around a tree top, for the chunks generated from now on.
+     * The same random draws are made at any density, so a lower density only removes leaves.
+     *
+     * @param leafPlantPercentage chance out of 10 that a leaf grows at each spot around a tree top
+     */
+    public void setLeafPlantPercentage(int leafPlantPercentage) {
+        this.leafPlantPercentage = leafPlantPercentage;
+    }
+
+    /**
+     * @return chance out of 10 that a leaf grows at each spot around a tree top
+     */
+    public int getLeafPlantPercentage() {
+        return leafPlantPercentage;
+    }
+
+    /**
+     * Sets how many columns roll a tree planting, for the chunks generated from now on.
+     *
+     * @param treePlantPercentage chance out of 100 that a column rolls a tree planting
+     */
+    public void setTreePlantPercentage(int treePlantPercentage) {
+        this.treePlantPercentage = treePlantPercentage;
+    }
+
+    /**
+     * @return chance out of 100 that a column rolls a tree planting
+     */
+    public int getTreePlantPercentage() {
+        return treePlantPercentage;
     }
 
     /**
      * Generates a set of x coordinates for tree placement within a given range.
+     * Whether a column holds a tree depends only on the seed and the column itself,
+     * so a range yields the same trees however many times and in whatever order it is built.
      *
-     * @param minX the minimum x coordinate
-     * @param maxX the maximum x coordinate
+     * @param minX                the minimum x coordinate
+     * @param maxX                the maximum x coordinate
+     * @param treePlantPercentage chance out of 100 that a column rolls a tree planting
      * @return a set of x coordinates for tree placement
      */
-    private Set<Float> getTreeCoordinates(int minX, int maxX) {
+    private Set<Float> getTreeCoordinates(int minX, int maxX, int treePlantPercentage) {
         Set<Float> coordinateSet = new HashSet<>();
-        int relativeRange = (int) (((maxX - minX) - ((maxX - minX) % Block.SIZE)) / Block.SIZE);
-        int i = 0;
-        while (i < relativeRange) {
-            if (random.nextInt(100) < TREE_PLANT_PERCENTAGE) {
-                coordinateSet.add((float) i * Block.SIZE + minX + ((maxX - minX) % Block.SIZE));
-                i += 2;
-            } else {
-                i++;
+        int lastColumn = (int) Math.ceil(maxX / Block.SIZE);
+        for (int column = (int) Math.ceil(minX / Block.SIZE); column < lastColumn; column++) {
+            if (isTreeColumn(column, treePlantPercentage)) {
+                coordinateSet.add(column * Block.SIZE);
             }
         }
         return coordinateSet;
     }
 
+    /**
+     * Decides whether a tree grows in the given column. A column right after a planted
+     * column is left empty, so trees never stand side by side.
+     *
+     * @param column              the block column index
+     * @param treePlantPercentage chance out of 100 that a column rolls a tree planting
+     * @return true if a tree grows in the column
+     */
+    private boolean isTreeColumn(int column, int treePlantPercentage) {
+        return isPlanted(column, treePlantPercentage) && !isPlanted(column - 1, treePlantPercentage);
+    }
+
+    /**
+     * @param column              the block column index
+     * @param treePlantPercentage chance out of 100 that a column rolls a tree planting
+     * @return true if the column rolled a tree planting
+     */
+    private boolean isPlanted(int column, int treePlantPercentage) {
+        return PositionRandom.intAt(seed, column, PLANT_SALT, 100) < treePlantPercentage;
+    }
+
 
     /**
      * Generates a random tree height within a given range.
      *
+     * @param treeRandom the generator of the tree
      * @return a random tree height
      */
-    private int getRandomHeight() {
-        return random.nextInt((TREE_MAX_BLOCK_HEIGHT - TREE_MIN_BLOCK_HEIGHT) + 1) + TREE_MIN_BLOCK_HEIGHT;
+    private int getRandomHeight(SplittableRandom treeRandom) {
+        return treeRandom.nextInt((TREE_MAX_BLOCK_HEIGHT - TREE_MIN_BLOCK_HEIGHT) + 1) + TREE_MIN_BLOCK_HEIGHT;
     }
 
     /**
-     * planting a single tree (sorting blocks) in the
-     * given coordinates
+     * describes a single tree planted at the given coordinates
      *
-     * @param xCoordinate float of x coordinate to plant tree in
-     * @param yCoordinate float of y coordinate to plant tree in
-     * @return GameObject of the last tree Block (top)
+     * @param xCoordinate         float of x coordinate to plant tree in
+     * @param yCoordinate         float of y coordinate to plant tree in
+     * @param treeRandom          the generator of the tree
+     * @param leafPlantPercentage chance out of 10 that a leaf grows at each spot around the tree top
+     * @return the description of the tree
      * @throws IndexOutOfBoundsException
      */
-    private GameObject createTree(float xCoordinate, float yCoordinate) throws IndexOutOfBoundsException {
-        int height = getRandomHeight();
-        Renderable treeBlockImg = new RectangleRenderable(ColorSupplier.approximateColor(TREE_BLOCK_COLOR));
-        GameObject treeBlock = null;
-        for (int i = 0; i < height; ++i) {
-            Vector2 coordinates = new Vector2(xCoordinate - (xCoordinate % Block.SIZE),
-                    yCoordinate - (i * Block.SIZE));
-            treeBlock = new Block(coordinates, treeBlockImg);
-            gameObjects.addGameObject(treeBlock, treeLayer);
-            treeBlock.setTag(TREE_TAG);
-        }
-        if (treeBlock == null) {
+    private TreeDescriptor describeTree(float xCoordinate, float yCoordinate, SplittableRandom treeRandom,
+                                        int leafPlantPercentage) throws IndexOutOfBoundsException {
+        int height = getRandomHeight(treeRandom);
+        if (height <= 0) {
             throw new IndexOutOfBoundsException();
         }
-        return treeBlock;
+        int trunkColor = trunkPalette.pickIndex(treeRandom);
+        float x = xCoordinate - (xCoordinate % Block.SIZE);
+        Vector2 top = new Vector2(x, yCoordinate - ((height - 1) * Block.SIZE));
+        Set<Vector2> leafCoordinates = getLeafCoordinates(top, treeRandom, leafPlantPercentage);
+        int leafColor = leafPalette.pickIndex(treeRandom);
+        return new TreeDescriptor(top, height, trunkColor, leafColor, leafCoordinates);
+    }
+
+    /**
+     * planting a single described tree (sorting blocks)
+     *
+     * @param descriptor the description of the tree
+     * @param chunk      the chunk that owns the created blocks
+     */
+    private void createTree(TreeDescriptor descriptor, Chunk chunk) {
+        Renderable treeBlockImg = trunkPalette.getRenderable(descriptor.getTrunkColor());
+        Vector2 top = descriptor.getTrunkTop();
+        int height = descriptor.getHeight();
+        if (mergedGeometry) {
+            addTrunkBlock(top, new Vector2(Block.SIZE, height * Block.SIZE), treeBlockImg, chunk);
+            return;
+        }
+        for (int i = 0; i < height; ++i) {
+            Vector2 coordinates = new Vector2(top.x(), top.y() + (i * Block.SIZE));
+            addTrunkBlock(coordinates, Vector2.ONES.mult(Block.SIZE), treeBlockImg, chunk);
+        }
+    }
+
+    /**
+     * Takes a trunk block from the pool, adds it to the game and registers it with its chunk.
+     *
+     * @param topLeftCorner position of the trunk block
+     * @param dimensions    dimensions of the trunk block
+     * @param treeBlockImg  renderable of the trunk
+     * @param chunk         the chunk that owns the block
+     */
+    private void addTrunkBlock(Vector2 topLeftCorner, Vector2 dimensions, Renderable treeBlockImg, Chunk chunk) {
+        Block treeBlock = blockPool.acquire();
+        treeBlock.reset(topLeftCorner, dimensions, treeBlockImg, TREE_TAG);
+        gameObjects.addGameObject(treeBlock, treeLayer);
+        chunk.addTrunkBlock(treeBlock);
     }
 
 
@@ -114,13 +262,28 @@ public class Tree {
      * topLeftCorner given
      *
      * @param treeTopLeftCorner Vector2 of the last tree block to build leaves around
+     * @param treeRandom        the generator of the tree
+     * @return set of Vector2 object of the coordinates (TopLeft) to build leaves in
+     */
+    Set<Vector2> getLeafCoordinates(Vector2 treeTopLeftCorner, SplittableRandom treeRandom) {
+        return getLeafCoordinates(treeTopLeftCorner, treeRandom, leafPlantPercentage);
+    }
+
+    /**
+     * function generates coordinates of leaves to build around a tree of given
+     * topLeftCorner given, at the given leaf density
+     *
+     * @param treeTopLeftCorner Vector2 of the last tree block to build leaves around
+     * @param treeRandom        the generator of the tree
+     * @param percentage        chance out of 10 that a leaf grows at each spot
      * @return set of Vector2 object of the coordinates (TopLeft) to build leaves in
      */
-    Set<Vector2> getLeafCoordinates(Vector2 treeTopLeftCorner) {
+    private Set<Vector2> getLeafCoordinates(Vector2 treeTopLeftCorner, SplittableRandom treeRandom,
+                                            int percentage) {
         Set<Vector2> coordinates = new HashSet<>();
         for (int x = -LEAF_BLOCK_RANGE; x <= LEAF_BLOCK_RANGE; ++x) {
             for (int y = -LEAF_BLOCK_RANGE; y <= LEAF_BLOCK_RANGE; ++y) {
-                if (random.nextInt(10) < LEAF_PLANT_PERCENTAGE) {
+                if (treeRandom.nextInt(10) < percentage) {
                     Vector2 coordinate = new Vector2(
                             treeTopLeftCorner.x() + x * Block.SIZE,
                             treeTopLeftCorner.y() + y * Block.SIZE
@@ -134,169 +297,118 @@ public class Tree {
 
 
     /**
-     * provides random angles to replace the delay
+     * Creates a new leaf block. Used by the leaf pool when it has no idle leaf to recycle.
+     * Its life cycle is started by the leaf life scheduler when the leaf is placed.
      *
-     * @return float of randomly chosen angle
+     * @return the new leaf block
      */
-    private float randomizeAngle() {
-        int rand = random.nextInt(4);
-        if (rand == 0) {
-            return -DELAY_OF_FIVE;
-        } else if (rand == 1) {
-            return DELAY_OF_FIVE;
-        } else if (rand == 2) {
-            return -2 * DELAY_OF_FIVE;
-        } else if (rand == 3) {
-            return 2 * DELAY_OF_FIVE;
-        }
-        return 0 * DELAY_OF_FIVE;
+    private LeafBlock createLeafBlock() {
+        return new LeafBlock(Vector2.ZERO, null);
     }
 
-
     /**
-     * Runs the necessary tasks for a leaf block.
+     * Picks the time between two falls of the leaf growing at the given coordinates,
+     * between LEAF_MIN_PERIOD and LEAF_MIN_PERIOD + LEAF_PERIOD_RANGE seconds.
      *
-     * @param leaf the leaf block
+     * @param tile the block tile of the leaf
+     * @return the period in seconds
      */
-    private void initializeLeafBlock(LeafBlock leaf) {
-        Vector2 initialTopLeftCorner = new Vector2(leaf.getTopLeftCorner().x(), leaf.getTopLeftCorner().y());
-        float init = randomizeAngle();
-
-        createAngleTransition(leaf, init);
-        createDimensionTransition(leaf);
-        createLeafLife(leaf, initialTopLeftCorner);
-        createOffScreenCheck(leaf);
+    private float leafLifePeriod(long tile) {
+        return LEAF_MIN_PERIOD + PositionRandom.intAt(seed, tile, LIFE_SALT, LEAF_PERIOD_RANGE);
     }
 
     /**
-     * Creates an angle transition for a leaf block.
+     * Picks the sway amplitude of the leaf growing at the given tile, one of SWAY_AMPLITUDES.
      *
-     * @param leaf the leaf block
-     * @param init the initial angle value
+     * @param tile the block tile of the leaf
+     * @return sway amplitude in degrees
      */
-    private void createAngleTransition(LeafBlock leaf, float init) {
-        Transition<Float> angleTransition = new Transition<>(
-                leaf,
-                leaf.renderer()::setRenderableAngle,
-                init,
-                -init,
-                Transition.LINEAR_INTERPOLATOR_FLOAT,
-                0.6f,
-                Transition.TransitionType.TRANSITION_BACK_AND_FORTH,
-                null
-        );
-
-        leaf.addComponent(angleTransition);
+    private float leafSwayAmplitude(long tile) {
+        return SWAY_AMPLITUDES[PositionRandom.intAt(seed, tile, SWAY_SALT, SWAY_AMPLITUDES.length)];
     }
 
     /**
-     * Creates a dimension transition for a leaf block.
+     * Creates a LeafBlock and adds it to the gameObjects collection.
      *
-     * @param leaf the leaf block
+     * @param coordinate   top left corner of the leaf
+     * @param leafColor    palette index of the leaves of the tree
+     * @param chunk        the chunk that owns the created leaf
      */
-    private void createDimensionTransition(LeafBlock leaf) {
-        Transition<Vector2> dimensionTransition = new Transition<>(
-                leaf,
-                leaf::setDimensions,
-                leaf.getDimensions().mult(0.985f),
-                leaf.getDimensions().mult(1.005f),
-                Transition.CUBIC_INTERPOLATOR_VECTOR,
-                0.8f,
-                Transition.TransitionType.TRANSITION_BACK_AND_FORTH,
-                null
-        );
-
-        leaf.addComponent(dimensionTransition);
+    private void createLeaf(Vector2 coordinate, int leafColor, Chunk chunk) {
+        LeafBlock leaf = leafPool.acquire();
+        leaf.reset(coordinate, leafPalette.getRenderable(leafColor), leafColor);
+        long tile = leafTile(coordinate);
+        leaf.setSwayAmplitude(leafSwayAmplitude(tile));
+        leaf.renderer().setOpaqueness(LEAF_OPACITY);
+        leaf.setTag(LEAF_TAG);
+
+        gameObjects.addGameObject(leaf, leafLayer);
+        chunk.addLeaf(leaf);
+        leafLifeScheduler.start(leaf, leafLifePeriod(tile));
     }
 
     /**
-     * Creates a scheduled task for a leaf block's life cycle.
-     *
-     * @param leaf                 the leaf block
-     * @param initialTopLeftCorner the initial top-left corner position of the leaf block
+     * @param coordinate top left corner of a leaf
+     * @return a key of the block tile of the leaf, for position hashing
      */
-    private void createLeafLife(LeafBlock leaf, Vector2 initialTopLeftCorner) {
-        ScheduledTask leafLife = new ScheduledTask(leaf, random.nextInt(60) + 20,
-                true, () -> {
-            Transition<Float> fallTransition = new Transition<>(
-                    leaf,
-                    leaf.transform()::setVelocityY,
-                    0f,
-                    200f,
-                    Transition.LINEAR_INTERPOLATOR_FLOAT,
-                    0.1f,
-                    Transition.TransitionType.TRANSITION_ONCE,
-                    null
-            );
-
-            leaf.renderer().fadeOut(10f, () -> {
-                leaf.renderer().setOpaqueness(LEAF_OPACITY);
-                leaf.transform().setTopLeftCorner(initialTopLeftCorner);
-            });
-        });
-
-        leaf.addComponent(leafLife);
+    private static long leafTile(Vector2 coordinate) {
+        return ((long) Math.floor(coordinate.x() / Block.SIZE) << 32)
+                ^ (long) Math.floor(coordinate.y() / Block.SIZE);
     }
 
     /**
-     * Creates a component that deactivates transitions when a leaf block goes off screen.
+     * Computes the trees growing within a given range of x coordinates.
+     * The ground heights are read from the terrain strip described for the same range.
+     * Creates no game objects and only reads immutable state, so it is safe to call from any thread.
+     * The densities are passed in rather than read from the tree, so a range is described at a single
+     * density even if it changes meanwhile, and the same seed and densities always yield the same trees.
      *
-     * @param leaf the leaf block
+     * @param minX                the minimum x coordinate
+     * @param maxX                the maximum x coordinate
+     * @param strip               the terrain strip covering the range
+     * @param treePlantPercentage chance out of 100 that a column rolls a tree planting
+     * @param leafPlantPercentage chance out of 10 that a leaf grows at each spot around a tree top
+     * @return the descriptions of the trees in the range
      */
-    private void createOffScreenCheck(LeafBlock leaf) {
-        leaf.setTransitionsActive(true);
-        leaf.addComponent(deltaTime -> {
-            if (leaf.getTopLeftCorner().x() >= windowBorder.x() && leaf.getTopLeftCorner().x()
-                    + Block.SIZE <= windowBorder.y()) {
-                if (!leaf.isTransitionsActive()) {
-                    leaf.setTransitionsActive(true);
-                }
-            } else {
-                if (leaf.isTransitionsActive()) {
-                    leaf.setTransitionsActive(false);
-                }
-            }
-        });
+    public List<TreeDescriptor> describe(int minX, int maxX, TerrainDescriptor strip,
+                                         int treePlantPercentage, int leafPlantPercentage) {
+        List<TreeDescriptor> trees = new ArrayList<>();
+        for (float x : getTreeCoordinates(minX, maxX, treePlantPercentage)) {
+            float y = strip.getGroundHeightAt(x);
+            SplittableRandom treeRandom = PositionRandom.at(seed, (long) (x / Block.SIZE), TREE_SALT);
+            trees.add(describeTree(x, y, treeRandom, leafPlantPercentage));
+        }
+        return trees;
     }
 
-
     /**
-     * Creates LeafBlock objects and adds them to the gameObjects collection.
+     * Queues the creation of the trunks and leaves of described trees in the chunk's work,
+     * one unit per trunk and per leaf. The work must be run on the game thread.
      *
-     * @param lastTreeBlock the last tree block in the tree
+     * @param trees the descriptions of the trees
+     * @param chunk the chunk that owns the created trees
      */
-    private void createLeaves(GameObject lastTreeBlock) {
-        Vector2 treeCoordinates = lastTreeBlock.getTopLeftCorner();
-        Set<Vector2> coordinateSet = getLeafCoordinates(treeCoordinates);
-        Renderable leafBlockLmg = new RectangleRenderable(ColorSupplier.approximateColor(LEAF_BLOCK_COLOR));
-        Iterator<Vector2> it = coordinateSet.iterator();
-        while (it.hasNext()) {
-            Vector2 coordinate = it.next();
-            LeafBlock leaf = new LeafBlock(coordinate, leafBlockLmg);
-            leaf.renderer().setOpaqueness(LEAF_OPACITY);
-            leaf.setTag(LEAF_TAG);
-
-            initializeLeafBlock(leaf);
-
-            gameObjects.addGameObject(leaf, leafLayer);
+    public void materialize(List<TreeDescriptor> trees, Chunk chunk) {
+        for (TreeDescriptor descriptor : trees) {
+            chunk.enqueueWork(() -> createTree(descriptor, chunk));
+            int leafColor = descriptor.getLeafColor();
+            for (Vector2 coordinate : descriptor.getLeafCoordinates()) {
+                chunk.enqueueWork(() -> createLeaf(coordinate, leafColor, chunk));
+            }
         }
     }
 
     /**
      * Creates trees within a given range of x coordinates.
      *
-     * @param minX the minimum x coordinate
-     * @param maxX the maximum x coordinate
+     * @param minX  the minimum x coordinate
+     * @param maxX  the maximum x coordinate
+     * @param strip the terrain strip covering the range
+     * @param chunk the chunk that owns the created trees
      */
-    public void createInRange(int minX, int maxX) {
-        Set<Float> coordinateSet = getTreeCoordinates(minX, maxX);
-        Iterator<Float> it = coordinateSet.iterator();
-        while (it.hasNext()) {
-            float x = it.next();
-            float y = terrain.groundHeightAt(x);
-            GameObject lastTreeBlock = createTree(x, y);
-            createLeaves(lastTreeBlock);
-        }
+    public void createInRange(int minX, int maxX, TerrainDescriptor strip, Chunk chunk) {
+        materialize(describe(minX, maxX, strip, treePlantPercentage, leafPlantPercentage), chunk);
+        chunk.runAllWork();
     }
 
 
@@ -0,0 +1,69 @@
+package pepse.world.trees;
+
+import danogl.util.Vector2;
+
+import java.util.Set;
+
+/**
+ * Pure description of a single tree: trunk position and height, palette colors and leaf positions.
+ * Holds no game objects, so it can be computed away from the game thread and materialized later.
+ */
+public class TreeDescriptor {
+
+    private final Vector2 trunkTop;
+    private final int height;
+    private final int trunkColor;
+    private final int leafColor;
+    private final Set<Vector2> leafCoordinates;
+
+    /**
+     * @param trunkTop        top left corner of the top trunk block
+     * @param height          trunk height in blocks
+     * @param trunkColor      palette index of the trunk color
+     * @param leafColor       palette index of the leaf color
+     * @param leafCoordinates top left corners of the leaves
+     */
+    public TreeDescriptor(Vector2 trunkTop, int height, int trunkColor, int leafColor,
+                          Set<Vector2> leafCoordinates) {
+        this.trunkTop = trunkTop;
+        this.height = height;
+        this.trunkColor = trunkColor;
+        this.leafColor = leafColor;
+        this.leafCoordinates = leafCoordinates;
+    }
+
+    /**
+     * @return top left corner of the top trunk block
+     */
+    public Vector2 getTrunkTop() {
+        return trunkTop;
+    }
+
+    /**
+     * @return trunk height in blocks
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return palette index of the trunk color
+     */
+    public int getTrunkColor() {
+        return trunkColor;
+    }
+
+    /**
+     * @return palette index of the leaf color
+     */
+    public int getLeafColor() {
+        return leafColor;
+    }
+
+    /**
+     * @return top left corners of the leaves
+     */
+    public Set<Vector2> getLeafCoordinates() {
+        return leafCoordinates;
+    }
+}
@@ -0,0 +1,145 @@
+package pepse.world.trees;
+
+import danogl.util.MutableVector2;
+import danogl.util.Vector2;
+import pepse.world.Block;
+import pepse.world.LeafBlock;
+import pepse.world.chunks.Chunk;
+
+import java.util.Collection;
+
+/**
+ * A single wind field that sways every leaf of the visible chunks.
+ * The angle and size of a leaf are computed from a shared clock and the leaf's position,
+ * so no leaf carries components of its own. Every GUST_INTERVAL seconds a gust enters from
+ * the left of the window and travels across the world, bending the leaves it passes.
+ * When the wind is disabled, the next update returns every leaf to rest.
+ */
+public class Wind {
+
+    private static final float ANGLE_PERIOD = 1.2f;
+    private static final float SCALE_PERIOD = 1.6f;
+    private static final float WAVE_NUMBER = 0.01f;
+    private static final float MIN_SCALE = 0.985f;
+    private static final float MAX_SCALE = 1.005f;
+    private static final int SCALE_STEPS = 16;
+    private static final float GUST_INTERVAL = 8f;
+    private static final float GUST_SPEED = 400f;
+    private static final float GUST_WIDTH = 300f;
+    private static final float GUST_STRENGTH = 1.5f;
+    private static final float GUST_REACH = 3 * GUST_WIDTH;
+    private static final double TWO_PI = 2 * Math.PI;
+
+    private final MutableVector2 windowBorder;
+    private final Vector2[] scaledDimensions;
+    private float time;
+    private float gustX;
+    private float gustTimer;
+    private boolean enabled;
+    private boolean restPending;
+
+    /**
+     * @param windowBorder the x range of the window (x - left, y - right), gusts start at its left edge
+     */
+    public Wind(MutableVector2 windowBorder) {
+        this.windowBorder = windowBorder;
+        scaledDimensions = new Vector2[SCALE_STEPS];
+        for (int i = 0; i < SCALE_STEPS; i++) {
+            float scale = MIN_SCALE + (MAX_SCALE - MIN_SCALE) * i / (SCALE_STEPS - 1);
+            scaledDimensions[i] = Vector2.ONES.mult(Block.SIZE * scale);
+        }
+        gustX = Float.NEGATIVE_INFINITY;
+        enabled = true;
+    }
+
+    /**
+     * Advances the wind clock and applies the sway to the leaves of the visible chunks among the given ones.
+     * Leaves of chunks off screen are skipped as a group.
+     *
+     * @param deltaTime time since the last frame, in seconds
+     * @param chunks    the chunks whose leaves should sway
+     */
+    public void update(float deltaTime, Collection<Chunk> chunks) {
+        if (!enabled) {
+            if (restPending) {
+                restPending = false;
+                for (Chunk chunk : chunks) {
+                    for (LeafBlock leaf : chunk.getLeaves()) {
+                        leaf.rest();
+                    }
+                }
+            }
+            return;
+        }
+        time += deltaTime;
+        updateGust(deltaTime);
+        double anglePhase = TWO_PI * time / ANGLE_PERIOD;
+        double scalePhase = TWO_PI * time / SCALE_PERIOD;
+        for (Chunk chunk : chunks) {
+            if (!chunk.isVisible()) {
+                continue;
+            }
+            for (LeafBlock leaf : chunk.getLeaves()) {
+                sway(leaf, anglePhase, scalePhase);
+            }
+        }
+    }
+
+    /**
+     * Moves the current gust along and starts a new one every GUST_INTERVAL seconds.
+     *
+     * @param deltaTime time since the last frame, in seconds
+     */
+    private void updateGust(float deltaTime) {
+        gustTimer += deltaTime;
+        if (gustTimer >= GUST_INTERVAL) {
+            gustTimer -= GUST_INTERVAL;
+            gustX = windowBorder.x() - GUST_REACH;
+        }
+        gustX += GUST_SPEED * deltaTime;
+    }
+
+    /**
+     * Applies the angle and size of the wind at the leaf's position.
+     *
+     * @param leaf       the leaf to sway
+     * @param anglePhase shared phase of the angle oscillation
+     * @param scalePhase shared phase of the size oscillation
+     */
+    private void sway(LeafBlock leaf, double anglePhase, double scalePhase) {
+        float x = leaf.getHomePosition().x();
+        double phase = x * WAVE_NUMBER;
+        float amplitude = leaf.getSwayAmplitude() * (1 + gustAt(x));
+        leaf.renderer().setRenderableAngle((float) (amplitude * Math.sin(anglePhase + phase)));
+        int step = (int) ((Math.sin(scalePhase + phase) + 1) * 0.5 * (SCALE_STEPS - 1) + 0.5);
+        leaf.setDimensions(scaledDimensions[step]);
+    }
+
+    /**
+     * @param x x coordinate in world space
+     * @return the extra sway caused by the current gust at x
+     */
+    private float gustAt(float x) {
+        float distance = x - gustX;
+        if (distance > GUST_REACH || distance < -GUST_REACH) {
+            return 0;
+        }
+        float relative = distance / GUST_WIDTH;
+        return GUST_STRENGTH * (float) Math.exp(-relative * relative);
+    }
+
+    /**
+     * @param enabled false to stop swaying the leaves and return them to rest on the next update
+     */
+    public void setEnabled(boolean enabled) {
+        restPending = !enabled && (this.enabled || restPending);
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return true if the wind sways the leaves
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+}